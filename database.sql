@@ -67,6 +67,7 @@ CREATE TABLE dbo.products (
     category_id INT NULL,
     image_id INT NULL,
     created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    view_count BIGINT NOT NULL DEFAULT 0,
 
     CONSTRAINT FK_products_categories FOREIGN KEY (category_id) REFERENCES dbo.categories(category_id),
     CONSTRAINT FK_products_images FOREIGN KEY (image_id) REFERENCES dbo.images(image_id)
@@ -101,6 +102,7 @@ CREATE TABLE dbo.orders (
     order_id INT IDENTITY(1,1) PRIMARY KEY,
     user_id INT NOT NULL,
     order_date DATETIME NOT NULL DEFAULT GETDATE(),
+    status VARCHAR(50) NULL DEFAULT 'pending',
     CONSTRAINT FK_orders_users FOREIGN KEY (user_id) REFERENCES dbo.users(user_id)
 );
 
@@ -116,6 +118,38 @@ CREATE TABLE dbo.order_details (
     CONSTRAINT FK_order_details_products FOREIGN KEY (product_id) REFERENCES dbo.products(product_id)
 );
 
+IF OBJECT_ID(N'dbo.sales_summary', N'U') IS NOT NULL DROP TABLE dbo.sales_summary;
+CREATE TABLE dbo.sales_summary (
+    status VARCHAR(50) PRIMARY KEY,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_revenue DECIMAL(18,2) NOT NULL DEFAULT 0,
+    updated_at DATETIME NULL
+);
+
+-- secondary indexes (kept in sync with src/main/resources/db/migration)
+CREATE INDEX IX_products_category_id ON dbo.products (category_id)
+    INCLUDE (product_name, price, stock_quantity, image_id);
+CREATE INDEX IX_products_stock_quantity ON dbo.products (stock_quantity)
+    INCLUDE (product_name, price, category_id, image_id, created_at);
+CREATE INDEX IX_products_view_count ON dbo.products (view_count DESC)
+    INCLUDE (product_name);
+CREATE INDEX IX_products_price ON dbo.products (price)
+    INCLUDE (product_name, stock_quantity, category_id, image_id);
+CREATE INDEX IX_products_created_at ON dbo.products (created_at DESC)
+    INCLUDE (stock_quantity);
+CREATE INDEX IX_products_image_id ON dbo.products (image_id);
+CREATE INDEX IX_orders_user_id_order_date ON dbo.orders (user_id, order_date DESC)
+    INCLUDE (status);
+CREATE INDEX IX_orders_order_date ON dbo.orders (order_date DESC)
+    INCLUDE (user_id, status);
+CREATE INDEX IX_order_details_order_id ON dbo.order_details (order_id)
+    INCLUDE (product_id, quantity, price);
+CREATE INDEX IX_order_details_product_id ON dbo.order_details (product_id)
+    INCLUDE (order_id, quantity, price);
+CREATE INDEX IX_cart_items_product_id ON dbo.cart_items (product_id)
+    INCLUDE (cart_id, quantity);
+GO
+
 -- initial data seeding
 INSERT INTO dbo.roles (role_id, role_name) VALUES
 (1, 'admin'),
@@ -4,10 +4,13 @@ import com.computershop.main.entities.User;
 import com.computershop.main.entities.Product;
 import com.computershop.main.entities.Category;
 import com.computershop.main.entities.Order;
+import com.computershop.main.services.CatalogFacetIndex;
 import com.computershop.main.services.UserService;
 import com.computershop.main.services.ProductService;
 import com.computershop.main.services.CategoryService;
+import com.computershop.main.services.DashboardSnapshotService;
 import com.computershop.main.services.OrderService;
+import com.computershop.main.services.SalesSummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -17,6 +20,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import jakarta.servlet.http.HttpSession;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -34,6 +38,9 @@ public class AdminController {
     
     @Autowired
     private OrderService orderService;
+    
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
 
     private boolean isAdmin(HttpSession session) {
         String role = (String) session.getAttribute("role");
@@ -47,16 +54,19 @@ public class AdminController {
         }
         
         try {
+            DashboardSnapshotService.DashboardSnapshot snapshot = dashboardSnapshotService.getSnapshot();
             
-            model.addAttribute("totalUsers", userService.getTotalUsers());
-            model.addAttribute("totalProducts", productService.getTotalProducts());
-            model.addAttribute("totalCategories", categoryService.getAllCategories().size());
-            model.addAttribute("totalOrders", orderService.getTotalOrders());
-            model.addAttribute("totalRevenue", orderService.getTotalRevenue());
+            model.addAttribute("totalUsers", snapshot.getTotalUsers());
+            model.addAttribute("totalProducts", snapshot.getTotalProducts());
+            model.addAttribute("totalCategories", snapshot.getTotalCategories());
+            model.addAttribute("totalOrders", snapshot.getTotalOrders());
+            model.addAttribute("totalRevenue", snapshot.getTotalRevenue());
             
-            model.addAttribute("recentOrders", orderService.getRecentOrders(10));
-            model.addAttribute("lowStockProducts", productService.getLowStockProducts(10));
-            model.addAttribute("recentUsers", userService.getRecentUsers(5));
+            model.addAttribute("recentOrders", snapshot.getRecentOrders());
+            model.addAttribute("lowStockProducts", snapshot.getLowStockProducts());
+            model.addAttribute("recentUsers", snapshot.getRecentUsers());
+            model.addAttribute("productCacheStats", productService.getProductCacheStats());
+            model.addAttribute("mostViewedProducts", productService.getMostViewedProducts(5));
             
             return "admin/dashboard"; 
             
@@ -202,16 +212,14 @@ public class AdminController {
             List<Product> products = productService.getAllProducts();
             List<Category> categories = categoryService.getAllCategoriesOrderedByName();
             
-            long inStockCount = products.stream().filter(p -> p.getStockQuantity() > 0).count();
-            long lowStockCount = products.stream().filter(p -> p.getStockQuantity() > 0 && p.getStockQuantity() <= 5).count();
-            long outOfStockCount = products.stream().filter(p -> p.getStockQuantity() == 0).count();
+            Map<CatalogFacetIndex.StockState, Integer> stockCounts = productService.getStockStateCounts();
             
             model.addAttribute("products", products);
             model.addAttribute("categories", categories);
             model.addAttribute("newProduct", new Product());
-            model.addAttribute("inStockCount", inStockCount);
-            model.addAttribute("lowStockCount", lowStockCount);
-            model.addAttribute("outOfStockCount", outOfStockCount);
+            model.addAttribute("inStockCount", stockCounts.get(CatalogFacetIndex.StockState.IN_STOCK));
+            model.addAttribute("lowStockCount", stockCounts.get(CatalogFacetIndex.StockState.LOW_STOCK));
+            model.addAttribute("outOfStockCount", stockCounts.get(CatalogFacetIndex.StockState.OUT_OF_STOCK));
             
             return "admin/products";
             
@@ -364,21 +372,13 @@ public class AdminController {
         
         try {
             List<Order> orders = orderService.getAllOrders();
-            
-            long pendingCount = orders.stream()
-                .filter(o -> o.getStatus() == null || "pending".equalsIgnoreCase(o.getStatus()))
-                .count();
-            long shippingCount = orders.stream()
-                .filter(o -> "shipping".equalsIgnoreCase(o.getStatus()))
-                .count();
-            long completedCount = orders.stream()
-                .filter(o -> "completed".equalsIgnoreCase(o.getStatus()))
-                .count();
+            SalesSummaryService.SalesTotals totals = orderService.getSalesTotals();
             
             model.addAttribute("orders", orders);
-            model.addAttribute("pendingCount", pendingCount);
-            model.addAttribute("shippingCount", shippingCount);
-            model.addAttribute("completedCount", completedCount);
+            model.addAttribute("pendingCount", totals.getStatusCount("pending"));
+            model.addAttribute("shippingCount", totals.getStatusCount("shipping"));
+            model.addAttribute("completedCount", totals.getStatusCount("completed"));
+            model.addAttribute("totalRevenue", totals.getTotalRevenue());
             return "admin/orders"; 
             
         } catch (Exception e) {
@@ -387,10 +387,49 @@ public class AdminController {
             model.addAttribute("pendingCount", 0);
             model.addAttribute("shippingCount", 0);
             model.addAttribute("completedCount", 0);
+            model.addAttribute("totalRevenue", BigDecimal.ZERO);
             return "admin/orders";
         }
     }
 
+    @PostMapping("/orders/{id}/status")
+    public String updateOrderStatus(@PathVariable("id") Integer orderId,
+                                  @RequestParam("status") String status,
+                                  HttpSession session,
+                                  RedirectAttributes redirectAttributes) {
+        if (!isAdmin(session)) {
+            return "redirect:/login";
+        }
+        
+        try {
+            orderService.updateOrderStatus(orderId, status);
+            redirectAttributes.addFlashAttribute("success", "Trạng thái đơn hàng đã được cập nhật");
+            
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", "Đã xảy ra lỗi: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/orders/" + orderId;
+    }
+
+    @PostMapping("/sales-summary/rebuild")
+    public String rebuildSalesSummary(HttpSession session, RedirectAttributes redirectAttributes) {
+        if (!isAdmin(session)) {
+            return "redirect:/login";
+        }
+        
+        try {
+            orderService.rebuildSalesSummary();
+            dashboardSnapshotService.invalidate();
+            redirectAttributes.addFlashAttribute("success", "Đã tính lại thống kê doanh thu");
+            
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", "Đã xảy ra lỗi: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/dashboard";
+    }
+
     @GetMapping("/orders/{id}")
     public String orderDetail(@PathVariable("id") Integer orderId,
                             HttpSession session,
@@ -2,8 +2,12 @@ package com.computershop.main.controllers;
 
 import com.computershop.main.entities.User;
 import com.computershop.main.entities.Role;
+import com.computershop.main.services.CartService;
+import com.computershop.main.services.GuestCart;
 import com.computershop.main.services.UserService;
 import com.computershop.main.services.RoleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -18,11 +22,16 @@ import java.util.Optional;
 @Controller
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private UserService userService;
     
     @Autowired
     private RoleService roleService;
+    
+    @Autowired
+    private CartService cartService;
 
     @GetMapping("/login")
     public String loginPage(@RequestParam(value = "error", required = false) String error,
@@ -132,6 +141,17 @@ public class AuthController {
                 session.setAttribute("username", user.getUsername());
                 session.setAttribute("role", user.getRole().getRoleName());
                 
+                GuestCart guestCart = (GuestCart) session.getAttribute(GuestCart.SESSION_ATTRIBUTE);
+                if (guestCart != null) {
+                    try {
+                        cartService.mergeGuestCart(user.getUserId(), guestCart);
+                        session.removeAttribute(GuestCart.SESSION_ATTRIBUTE);
+                    } catch (Exception e) {
+                        // a cart that cannot be merged must not block the login; it stays in the session
+                        log.warn("Could not merge the guest cart of user {}", user.getUserId(), e);
+                    }
+                }
+                
                 String roleName = user.getRole().getRoleName();
                 if ("admin".equals(roleName)) {
                     return "redirect:/admin/dashboard";
@@ -1,20 +1,21 @@
 package com.computershop.main.controllers;
 
-import com.computershop.main.entities.Cart;
-import com.computershop.main.entities.CartItem;
-import com.computershop.main.entities.User;
+import com.computershop.main.entities.Order;
+import com.computershop.main.services.CartItemCounter;
 import com.computershop.main.services.CartService;
-import com.computershop.main.services.UserService;
+import com.computershop.main.services.CheckoutService;
+import com.computershop.main.services.GuestCart;
+import com.computershop.main.services.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import jakarta.servlet.http.HttpSession;
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
 
 @Controller
 @RequestMapping("/cart")
@@ -24,31 +25,45 @@ public class CartController {
     private CartService cartService;
     
     @Autowired
-    private UserService userService;
+    private ProductService productService;
     
     private Integer getUserIdFromSession(HttpSession session) {
         return (Integer) session.getAttribute("userId");
     }
     
-    @GetMapping("/view")
-    public String viewCart(HttpSession session, Model model) {
+    private GuestCart getGuestCart(HttpSession session) {
+        Object cart = session.getAttribute(GuestCart.SESSION_ATTRIBUTE);
+        return cart instanceof GuestCart ? (GuestCart) cart : new GuestCart();
+    }
+    
+    private void saveGuestCart(HttpSession session, GuestCart cart) {
+        // re-set even when unchanged in identity so replicated sessions see the mutation
+        session.setAttribute(GuestCart.SESSION_ATTRIBUTE, cart);
+    }
+    
+    private CartService.CartView getCartView(HttpSession session) {
         Integer userId = getUserIdFromSession(session);
-        
-        if (userId == null) {
-            return "redirect:/login";
-        }
-        
+        return userId != null ? cartService.getCartView(userId) : cartService.getCartView(getGuestCart(session));
+    }
+    
+    private int getItemCount(HttpSession session) {
+        Integer userId = getUserIdFromSession(session);
+        return userId != null ? cartService.getCartItemCount(userId) : getGuestCart(session).itemCount();
+    }
+    
+    @GetMapping({"", "/view"})
+    public String viewCart(HttpSession session, Model model) {
         try {
-            List<CartItem> cartItems = cartService.getCartItems(userId);
-            BigDecimal total = cartService.getCartTotal(userId);
-            int itemCount = cartService.getCartItemCount(userId);
+            CartService.CartView cart = getCartView(session);
             
-            model.addAttribute("cartItems", cartItems);
-            model.addAttribute("cartTotal", total);
-            model.addAttribute("cartItemCount", itemCount);
+            model.addAttribute("cartItems", cart.getItems());
+            model.addAttribute("cartTotal", cart.getTotal());
+            model.addAttribute("cartItemCount", cart.getItemCount());
+            model.addAttribute("boughtTogether", productService.getBoughtTogetherForCart(
+                    cart.getItems().stream().map(CartService.CartLine::getProductId).toList()));
             
             return "cart/view";
-            
+        
         } catch (Exception e) {
             model.addAttribute("error", "Đã xảy ra lỗi: " + e.getMessage());
             model.addAttribute("cartItems", List.of());
@@ -65,66 +80,85 @@ public class CartController {
                           HttpSession session) {
         Integer userId = getUserIdFromSession(session);
         
-        if (userId == null) {
-            return "{\"success\": false, \"message\": \"Vui lòng đăng nhập\"}";
-        }
-        
         try {
-            Optional<Cart> cartOpt = cartService.getCartByUserId(userId);
-            Cart cart;
-            
-            if (cartOpt.isEmpty()) {
-                Optional<User> userOpt = userService.getUserById(userId);
-                if (userOpt.isEmpty()) {
-                    return "{\"success\": false, \"message\": \"User không tồn tại\"}";
-                }
-                cart = cartService.getOrCreateCart(userOpt.get());
+            if (userId != null) {
+                cartService.addToCart(userId, productId, quantity);
+            } else {
+                GuestCart guestCart = getGuestCart(session);
+                cartService.addToCart(guestCart, productId, quantity);
+                saveGuestCart(session, guestCart);
             }
-            
-            cartService.addToCart(userId, productId, quantity);
-            int itemCount = cartService.getCartItemCount(userId);
+            int itemCount = getItemCount(session);
             
             return "{\"success\": true, \"message\": \"Đã thêm vào giỏ hàng\", \"itemCount\": " + itemCount + "}";
-            
+        
         } catch (Exception e) {
             return "{\"success\": false, \"message\": \"" + e.getMessage() + "\"}";
         }
     }
     
     @PostMapping("/update")
-    public String updateCartItem(@RequestParam("cartItemId") Integer cartItemId,
+    @ResponseBody
+    public String updateCartItem(@RequestParam("productId") Integer productId,
                                 @RequestParam("quantity") Integer quantity,
-                                HttpSession session,
-                                RedirectAttributes redirectAttributes) {
+                                HttpSession session) {
         Integer userId = getUserIdFromSession(session);
         
-        if (userId == null) {
-            return "redirect:/login";
-        }
-        
         try {
-            cartService.updateCartItemQuantity(cartItemId, quantity);
-            redirectAttributes.addFlashAttribute("success", "Đã cập nhật số lượng");
+            if (userId != null) {
+                if (quantity <= 0) {
+                    cartService.removeFromCart(userId, productId);
+                } else {
+                    cartService.updateCartItemQuantity(userId, productId, quantity);
+                }
+            } else {
+                GuestCart guestCart = getGuestCart(session);
+                if (quantity <= 0) {
+                    guestCart.set(productId, 0);
+                } else {
+                    cartService.updateCartItemQuantity(guestCart, productId, quantity);
+                }
+                saveGuestCart(session, guestCart);
+            }
+            int itemCount = getItemCount(session);
+            return "{\"success\": true, \"message\": \"Đã cập nhật số lượng\", \"itemCount\": " + itemCount + "}";
         } catch (Exception e) {
-            redirectAttributes.addFlashAttribute("error", "Lỗi: " + e.getMessage());
+            return "{\"success\": false, \"message\": \"" + e.getMessage() + "\"}";
         }
-        
-        return "redirect:/cart/view";
     }
     
     @PostMapping("/remove")
-    public String removeFromCart(@RequestParam("cartItemId") Integer cartItemId,
-                                HttpSession session,
-                                RedirectAttributes redirectAttributes) {
+    @ResponseBody
+    public String removeFromCart(@RequestParam("productId") Integer productId,
+                                HttpSession session) {
         Integer userId = getUserIdFromSession(session);
         
-        if (userId == null) {
-            return "redirect:/login";
+        try {
+            if (userId != null) {
+                cartService.removeFromCart(userId, productId);
+            } else {
+                GuestCart guestCart = getGuestCart(session);
+                guestCart.set(productId, 0);
+                saveGuestCart(session, guestCart);
+            }
+            int itemCount = getItemCount(session);
+            return "{\"success\": true, \"message\": \"Đã xóa sản phẩm khỏi giỏ hàng\", \"itemCount\": " + itemCount + "}";
+        } catch (Exception e) {
+            return "{\"success\": false, \"message\": \"" + e.getMessage() + "\"}";
         }
+    }
+    
+    @PostMapping("/clear")
+    public String clearCart(HttpSession session, RedirectAttributes redirectAttributes) {
+        Integer userId = getUserIdFromSession(session);
         
         try {
-            cartService.removeFromCart(cartItemId);
-            redirectAttributes.addFlashAttribute("success", "Đã xóa sản phẩm khỏi giỏ hàng");
+            if (userId != null) {
+                cartService.clearCart(userId);
+            } else {
+                session.removeAttribute(GuestCart.SESSION_ATTRIBUTE);
+            }
+            redirectAttributes.addFlashAttribute("success", "Đã xóa toàn bộ giỏ hàng");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Lỗi: " + e.getMessage());
         }
@@ -132,38 +166,74 @@ public class CartController {
         return "redirect:/cart/view";
     }
     
-    @PostMapping("/clear")
-    public String clearCart(HttpSession session, RedirectAttributes redirectAttributes) {
+    @GetMapping("/checkout")
+    public String checkoutPage(HttpSession session, Model model, RedirectAttributes redirectAttributes) {
         Integer userId = getUserIdFromSession(session);
-        
         if (userId == null) {
             return "redirect:/login";
         }
         
+        CartService.CartView cart = cartService.getCartView(userId);
+        if (cart.isEmpty()) {
+            return "redirect:/cart/view";
+        }
+        
         try {
-            cartService.clearCart(userId);
-            redirectAttributes.addFlashAttribute("success", "Đã xóa toàn bộ giỏ hàng");
-        } catch (Exception e) {
-            redirectAttributes.addFlashAttribute("error", "Lỗi: " + e.getMessage());
+            cartService.startCheckout(userId);
+        } catch (CheckoutService.CheckoutException e) {
+            redirectAttributes.addFlashAttribute("error", 
+                "Không thể đặt hàng: " + String.join("; ", e.getLineErrors()));
+            return "redirect:/cart/view";
         }
         
-        return "redirect:/cart/view";
+        model.addAttribute("cartItems", cart.getItems());
+        model.addAttribute("cartTotal", cart.getTotal());
+        
+        return "cart/checkout";
     }
     
-    @GetMapping("/count")
-    @ResponseBody
-    public String getCartCount(HttpSession session) {
+    @PostMapping("/checkout")
+    public String processCheckout(@RequestParam("shippingAddress") String shippingAddress,
+                                @RequestParam("paymentMethod") String paymentMethod,
+                                @RequestParam(value = "notes", required = false) String notes,
+                                HttpSession session,
+                                RedirectAttributes redirectAttributes) {
         Integer userId = getUserIdFromSession(session);
-        
         if (userId == null) {
-            return "{\"count\": 0}";
+            return "redirect:/login";
         }
         
         try {
-            int count = cartService.getCartItemCount(userId);
-            return "{\"count\": " + count + "}";
+            Order savedOrder = cartService.checkout(userId);
+            
+            redirectAttributes.addFlashAttribute("success", 
+                "Đặt hàng thành công! Mã đơn hàng: " + savedOrder.getOrderId());
+            
+            return "redirect:/user/orders/" + savedOrder.getOrderId();
+        
+        } catch (CheckoutService.CheckoutException e) {
+            redirectAttributes.addFlashAttribute("error", 
+                "Không thể đặt hàng: " + String.join("; ", e.getLineErrors()));
+            return "redirect:/cart/view";
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", "Đã xảy ra lỗi: " + e.getMessage());
+            return "redirect:/cart/checkout";
+        }
+    }
+    
+    @GetMapping("/count")
+    @ResponseBody
+    public String getCartCount(HttpSession session, WebRequest webRequest) {
+        int count;
+        try {
+            count = getItemCount(session);
         } catch (Exception e) {
             return "{\"count\": 0}";
         }
+        
+        if (webRequest.checkNotModified(CartItemCounter.etag(count))) {
+            return null;
+        }
+        return "{\"count\": " + count + "}";
     }
 }
@@ -1,6 +1,6 @@
 package com.computershop.main.controllers;
 
-import com.computershop.main.entities.Product;
+import com.computershop.main.services.ProductCache;
 import com.computershop.main.services.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -19,7 +19,7 @@ public class HomeController {
     public String home(Model model) {
         try {
             
-            List<Product> featuredProducts = productService.getFeaturedProducts(6);
+            List<ProductCache.ProductView> featuredProducts = productService.getFeaturedProducts(6);
             model.addAttribute("products", featuredProducts);
             
             model.addAttribute("totalProducts", productService.getTotalProducts());
@@ -1,17 +1,20 @@
 package com.computershop.main.controllers;
 
-import com.computershop.main.entities.Product;
-
+import com.computershop.main.services.BestSellerRanking;
+import com.computershop.main.services.ProductCache;
 import com.computershop.main.services.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpSession;
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -22,66 +25,52 @@ public class ProductController {
     private ProductService productService;
 
     @GetMapping
-    public String productsPage(@RequestParam(value = "category", required = false) String category,
+    public String productsPage(@RequestParam(value = "category", required = false) List<String> categories,
                               @RequestParam(value = "search", required = false) String search,
                               @RequestParam(value = "q", required = false) String q,
+                              @RequestParam(value = "price", required = false) List<String> priceBands,
+                              @RequestParam(value = "stock", required = false) List<String> stockStates,
                               @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
                               @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
-                              @RequestParam(value = "sort", required = false, defaultValue = "name") String sort,
+                              @RequestParam(value = "sort", required = false) String sort,
                               @RequestParam(value = "page", required = false, defaultValue = "0") int page,
                               @RequestParam(value = "size", required = false, defaultValue = "12") int size,
                               Model model) {
         
         try {
-            List<Product> products;
-            
             String searchQuery = search != null ? search : q; 
-            if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-                products = productService.searchProductsByName(searchQuery.trim());
-            } else if (category != null && !category.trim().isEmpty()) {
-                products = productService.getProductsByCategoryName(category);
-            } else {
-                products = productService.getAllProducts();
+            boolean hasQuery = searchQuery != null && !searchQuery.isBlank();
+            if (sort == null || sort.isBlank() || (!hasQuery && ProductService.SORT_RELEVANCE.equals(sort))) {
+                sort = hasQuery ? ProductService.SORT_RELEVANCE : "name";
             }
+            List<String> selectedCategories = categories != null
+                    ? categories.stream().filter(c -> c != null && !c.isBlank()).toList()
+                    : List.of();
             
-            if (minPrice != null || maxPrice != null) {
-                BigDecimal min = minPrice != null ? minPrice : BigDecimal.ZERO;
-                BigDecimal max = maxPrice != null ? maxPrice : BigDecimal.valueOf(Double.MAX_VALUE);
-                products = products.stream()
-                    .filter(p -> p.getPrice().compareTo(min) >= 0 && p.getPrice().compareTo(max) <= 0)
-                    .toList();
-            }
+            ProductService.CatalogListing listing = productService.getCatalogListing(searchQuery, selectedCategories,
+                    priceBands, stockStates, minPrice, maxPrice, sort, page, size);
+            Page<ProductCache.ProductView> productPage = listing.getPage();
+            ProductService.CatalogFacets facets = listing.getFacets();
             
-            switch (sort) {
-                case "price-asc":
-                    products = products.stream()
-                        .sorted((p1, p2) -> p1.getPrice().compareTo(p2.getPrice()))
-                        .toList();
-                    break;
-                case "price-desc":
-                    products = products.stream()
-                        .sorted((p1, p2) -> p2.getPrice().compareTo(p1.getPrice()))
-                        .toList();
-                    break;
-                case "popular":
-                    
-                    products = products.stream()
-                        .sorted((p1, p2) -> Integer.compare(p2.getStockQuantity(), p1.getStockQuantity()))
-                        .toList();
-                    break;
-                case "name":
-                default:
-                    products = products.stream()
-                        .sorted((p1, p2) -> p1.getProductName().compareToIgnoreCase(p2.getProductName()))
-                        .toList();
-                    break;
+            model.addAttribute("products", productPage.getContent());
+            model.addAttribute("categories", productService.getAllCategoryNames());
+            model.addAttribute("totalProducts", productPage.getTotalElements());
+            model.addAttribute("currentPage", productPage.getNumber());
+            model.addAttribute("totalPages", productPage.getTotalPages());
+            model.addAttribute("pageSize", productPage.getSize());
+            
+            if (productPage.getTotalElements() == 0 && searchQuery != null && !searchQuery.isBlank()) {
+                model.addAttribute("didYouMean", productService.suggestSpelling(searchQuery));
             }
             
-            model.addAttribute("products", products);
-            model.addAttribute("categories", productService.getAllCategoryNames());
-            model.addAttribute("totalProducts", products.size());
+            model.addAttribute("categoryCounts", facets.getCategoryCounts());
+            model.addAttribute("priceBandCounts", facets.getPriceBandCounts());
+            model.addAttribute("stockStateCounts", facets.getStockStateCounts());
             
-            model.addAttribute("selectedCategory", category);
+            model.addAttribute("selectedCategories", selectedCategories);
+            model.addAttribute("selectedCategory", String.join(", ", selectedCategories));
+            model.addAttribute("selectedPriceBands", priceBands != null ? priceBands : List.of());
+            model.addAttribute("selectedStockStates", stockStates != null ? stockStates : List.of());
             model.addAttribute("searchQuery", searchQuery);
             model.addAttribute("minPrice", minPrice);
             model.addAttribute("maxPrice", maxPrice);
@@ -91,6 +80,8 @@ public class ProductController {
             model.addAttribute("products", List.of());
             model.addAttribute("categories", List.of());
             model.addAttribute("totalProducts", 0);
+            model.addAttribute("currentPage", 0);
+            model.addAttribute("totalPages", 0);
             model.addAttribute("error", "Đã xảy ra lỗi khi tải sản phẩm: " + e.getMessage());
         }
         
@@ -100,21 +91,15 @@ public class ProductController {
     @GetMapping("/{id}")
     public String productDetail(@PathVariable("id") Integer productId, Model model) {
         try {
-            Optional<Product> productOpt = productService.getProductById(productId);
+            Optional<ProductCache.ProductView> productOpt = productService.getStorefrontProduct(productId);
             
             if (productOpt.isPresent()) {
-                Product product = productOpt.get();
+                ProductCache.ProductView product = productOpt.get();
                 model.addAttribute("product", product);
+                productService.recordView(productId);
                 
-                List<Product> relatedProducts = List.of();
-                if (product.getCategory() != null) {
-                    relatedProducts = productService.getProductsByCategory(product.getCategory());
-                    relatedProducts.removeIf(p -> p.getProductId().equals(productId)); 
-                    if (relatedProducts.size() > 4) {
-                        relatedProducts = relatedProducts.subList(0, 4); 
-                    }
-                }
-                model.addAttribute("relatedProducts", relatedProducts);
+                model.addAttribute("relatedProducts", productService.getRelatedProducts(productId));
+                model.addAttribute("boughtTogether", productService.getBoughtTogether(productId));
                 
                 model.addAttribute("inStock", product.getStockQuantity() > 0);
                 model.addAttribute("lowStock", product.getStockQuantity() > 0 && product.getStockQuantity() < 10);
@@ -131,6 +116,37 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/suggest")
+    @ResponseBody
+    public List<Map<String, Object>> suggest(@RequestParam(value = "q", required = false) String query) {
+        return productService.suggestProducts(query).stream()
+                .map(s -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("id", s.getProductId());
+                    item.put("name", s.getProductName());
+                    item.put("url", "/products/" + s.getProductId());
+                    return item;
+                })
+                .toList();
+    }
+
+    @GetMapping("/best-sellers")
+    @ResponseBody
+    public List<Map<String, Object>> bestSellers(@RequestParam(value = "window", defaultValue = "7d") String window,
+                                                 @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        BestSellerRanking.Window selected = BestSellerRanking.Window.fromParam(window);
+        return productService.getBestSellers(selected != null ? selected : BestSellerRanking.Window.WEEK, limit).stream()
+                .map(b -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("id", b.getProduct().getProductId());
+                    item.put("name", b.getProduct().getProductName());
+                    item.put("unitsSold", b.getUnitsSold());
+                    item.put("url", "/products/" + b.getProduct().getProductId());
+                    return item;
+                })
+                .toList();
+    }
+
     @GetMapping("/search")
     public String searchProducts(@RequestParam("q") String query, Model model) {
         return "redirect:/products?search=" + query;
@@ -139,7 +155,7 @@ public class ProductController {
     @GetMapping("/category/{category}")
     public String productsByCategory(@PathVariable("category") String category, Model model) {
         try {
-            List<Product> products = productService.getProductsByCategoryName(category);
+            List<ProductCache.ProductView> products = productService.getProductsByCategoryName(category);
             
             model.addAttribute("products", products);
             model.addAttribute("selectedCategory", category);
@@ -166,12 +182,12 @@ public class ProductController {
                 return "error:Vui lòng đăng nhập để thêm sản phẩm vào giỏ hàng";
             }
             
-            Optional<Product> productOpt = productService.getProductById(productId);
+            Optional<ProductCache.ProductView> productOpt = productService.getProductView(productId);
             if (productOpt.isEmpty()) {
                 return "error:Không tìm thấy sản phẩm";
             }
             
-            Product product = productOpt.get();
+            ProductCache.ProductView product = productOpt.get();
             if (product.getStockQuantity() < quantity) {
                 return "error:Không đủ hàng trong kho";
             }
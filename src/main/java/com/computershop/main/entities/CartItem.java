@@ -5,7 +5,8 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items",
+       uniqueConstraints = @UniqueConstraint(name = "UQ_cart_product", columnNames = {"cart_id", "product_id"}))
 public class CartItem {
     
     @Id
@@ -36,6 +36,9 @@ public class Product {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
+    @Column(name = "view_count", insertable = false, updatable = false)
+    private Long viewCount;
+    
     public Product() {}
     
     public Product(String productName, String description, BigDecimal price, Integer stockQuantity, Category category, Image image) {
@@ -56,6 +59,7 @@ public class Product {
     public Category getCategory() {return category;}
     public LocalDateTime getCreatedAt() {return createdAt;}
     public Image getImage() {return image;} 
+    public Long getViewCount() {return viewCount;}
 
     public void setProductId(Integer productId) {this.productId = productId;}
     public void setProductName(String productName) {this.productName = productName;}
@@ -0,0 +1,51 @@
+package com.computershop.main.entities;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "sales_summary")
+public class SalesSummary {
+    
+    @Id
+    @Column(name = "status", length = 50)
+    private String status;
+    
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+    
+    @Column(name = "total_revenue", nullable = false, precision = 18, scale = 2)
+    private BigDecimal totalRevenue;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public SalesSummary() {}
+    
+    public SalesSummary(String status, Long orderCount, BigDecimal totalRevenue) {
+        this.status = status;
+        this.orderCount = orderCount;
+        this.totalRevenue = totalRevenue;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    public String getStatus() {return status;}
+    public Long getOrderCount() {return orderCount;}
+    public BigDecimal getTotalRevenue() {return totalRevenue;}
+    public LocalDateTime getUpdatedAt() {return updatedAt;}
+
+    public void setStatus(String status) {this.status = status;}
+    public void setOrderCount(Long orderCount) {this.orderCount = orderCount;}
+    public void setTotalRevenue(BigDecimal totalRevenue) {this.totalRevenue = totalRevenue;}
+    public void setUpdatedAt(LocalDateTime updatedAt) {this.updatedAt = updatedAt;}
+
+    @Override
+    public String toString() {
+        return "SalesSummary{" +
+                "status='" + status + '\'' +
+                ", orderCount=" + orderCount +
+                ", totalRevenue=" + totalRevenue +
+                '}';
+    }
+}
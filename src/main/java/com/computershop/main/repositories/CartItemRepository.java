@@ -28,4 +28,7 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
     void deleteByCartCartId(Integer cartId);
     
     long countByCartCartId(Integer cartId);
+    
+    @Query("SELECT COALESCE(SUM(ci.quantity), 0) FROM CartItem ci WHERE ci.cart.user.userId = :userId")
+    long sumQuantityByUserId(@Param("userId") Integer userId);
 }
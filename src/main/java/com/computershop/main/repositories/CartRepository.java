@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -19,6 +20,10 @@ public interface CartRepository extends JpaRepository<Cart, Integer> {
     @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems ci LEFT JOIN FETCH ci.product WHERE c.user.userId = :userId")
     Optional<Cart> findByUserIdWithItems(@Param("userId") Integer userId);
     
+    @Query("SELECT c.cartId, p.productId, ci.quantity, ci.addedAt FROM Cart c LEFT JOIN c.cartItems ci LEFT JOIN ci.product p " +
+           "WHERE c.user.userId = :userId ORDER BY ci.addedAt, ci.cartItemId")
+    List<Object[]> findCartContentsByUserId(@Param("userId") Integer userId);
+    
     boolean existsByUserUserId(Integer userId);
     
     void deleteByUserUserId(Integer userId);
@@ -24,4 +24,8 @@ public interface CategoryRepository extends JpaRepository<Category, Integer> {
     
     @Query("SELECT c.categoryName, COUNT(p) FROM Category c LEFT JOIN c.products p GROUP BY c.categoryId, c.categoryName")
     List<Object[]> countProductsInCategories();
+    
+    @Query("SELECT c.categoryId, c.categoryName, COUNT(p) FROM Category c LEFT JOIN c.products p " +
+           "GROUP BY c.categoryId, c.categoryName ORDER BY c.categoryName")
+    List<Object[]> countProductsPerCategory();
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -36,6 +37,18 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Intege
            "GROUP BY od.product ORDER BY totalSold DESC")
     List<Object[]> findBestSellingProductsByQuantity();
     
+    @Query("SELECT od.product.productId, SUM(od.quantity) FROM OrderDetail od GROUP BY od.product.productId")
+    List<Object[]> sumQuantityByProduct();
+    
+    @Query("SELECT od.product.productId, o.orderDate, od.quantity FROM OrderDetail od JOIN od.order o " +
+           "WHERE o.orderDate >= :since AND (o.status IS NULL OR o.status <> 'cancelled')")
+    List<Object[]> findUnitsSoldSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT o.orderId, od.product.productId FROM OrderDetail od JOIN od.order o " +
+           "WHERE o.orderId > :fromOrderId AND o.orderId <= :toOrderId " +
+           "AND (o.status IS NULL OR o.status <> 'cancelled') ORDER BY o.orderId")
+    List<Object[]> findOrderProducts(@Param("fromOrderId") Integer fromOrderId, @Param("toOrderId") Integer toOrderId);
+    
     @Query("SELECT od.product, SUM(od.price * od.quantity) as totalRevenue FROM OrderDetail od " +
            "GROUP BY od.product ORDER BY totalRevenue DESC")
     List<Object[]> findBestSellingProductsByRevenue();
@@ -50,4 +50,14 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     
     @Query("SELECT o FROM Order o ORDER BY o.orderDate DESC")
     List<Order> findRecentOrdersForAdmin(Pageable pageable);
-}
\ No newline at end of file
+    
+    @Query("SELECT o FROM Order o JOIN FETCH o.user ORDER BY o.orderDate DESC")
+    List<Order> findRecentOrdersWithUser(Pageable pageable);
+    
+    @Query("SELECT o.status, COUNT(DISTINCT o.orderId), SUM(od.price * od.quantity) FROM Order o " +
+           "LEFT JOIN o.orderDetails od GROUP BY o.status")
+    List<Object[]> summarizeByStatus();
+    
+    @Query("SELECT MAX(o.orderId) FROM Order o")
+    Integer findMaxOrderId();
+}
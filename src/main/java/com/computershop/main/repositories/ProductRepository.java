@@ -6,11 +6,13 @@ import com.computershop.main.entities.Category;
 import com.computershop.main.entities.Image;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -36,10 +38,6 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<Product> searchProducts(@Param("keyword") String keyword);
     
-    @Query("SELECT p FROM Product p JOIN OrderDetail od ON p.productId = od.product.productId " +
-           "GROUP BY p.productId ORDER BY SUM(od.quantity) DESC")
-    List<Product> findTopSellingProducts();
-    
     List<Product> findAllByOrderByPriceAsc();
     
     List<Product> findAllByOrderByPriceDesc();
@@ -60,9 +58,40 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT p FROM Product p WHERE p.stockQuantity < 20 ORDER BY p.stockQuantity ASC")
     List<Product> findLowStockProducts(Pageable pageable);
     
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.stockQuantity < 20 ORDER BY p.stockQuantity ASC")
+    List<Product> findLowStockProductsWithCategory(Pageable pageable);
+    
     @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.image")
     List<Product> findAllWithCategoryAndImage();
     
     @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.image WHERE p.stockQuantity > 0 ORDER BY p.createdAt DESC")
     List<Product> findFeaturedProductsWithDetails();
+    
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.image WHERE p.stockQuantity > 0 ORDER BY p.createdAt DESC")
+    List<Product> findNewestInStockWithDetails(Pageable pageable);
+    
+    @Query("SELECT p.productId, p.productName, p.viewCount FROM Product p WHERE p.viewCount > 0 ORDER BY p.viewCount DESC")
+    List<Object[]> findMostViewed(Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity " +
+           "WHERE p.productId = :productId AND p.stockQuantity >= :quantity")
+    int decrementStockIfAvailable(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity WHERE p.productId = :productId")
+    int incrementStock(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+    
+    @Query("SELECT p.productId, p.productName, p.description FROM Product p")
+    List<Object[]> findSearchableFields();
+    
+    @Query("SELECT p.productId, c.categoryId, p.price FROM Product p LEFT JOIN p.category c")
+    List<Object[]> findRelatedFields();
+    
+    @Query("SELECT p.productId, p.productName, p.description, c.categoryId, i.imageId, p.price, p.stockQuantity, p.createdAt " +
+           "FROM Product p LEFT JOIN p.category c LEFT JOIN p.image i WHERE p.productId > :afterId ORDER BY p.productId")
+    List<Object[]> findFacetFieldsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+    
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.image WHERE p.productId IN :ids")
+    List<Product> findAllWithCategoryAndImageByIdIn(@Param("ids") Collection<Integer> ids);
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.computershop.main.repositories;
+
+import com.computershop.main.entities.SalesSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface SalesSummaryRepository extends JpaRepository<SalesSummary, String> {
+    
+    @Modifying
+    @Query("UPDATE SalesSummary s SET s.orderCount = s.orderCount + :orders, " +
+           "s.totalRevenue = s.totalRevenue + :revenue, s.updatedAt = :updatedAt WHERE s.status = :status")
+    int applyDelta(@Param("status") String status,
+                   @Param("orders") long orders,
+                   @Param("revenue") BigDecimal revenue,
+                   @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -35,4 +35,7 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     
     @Query("SELECT u FROM User u ORDER BY u.userId DESC")
     List<User> findRecentUsers(Pageable pageable);
+    
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.role ORDER BY u.userId DESC")
+    List<User> findRecentUsersWithRole(Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,325 @@
+package com.computershop.main.services;
+
+import com.computershop.main.repositories.OrderDetailRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Units sold per product over sliding windows, kept in hourly buckets for the last day and daily
+ * buckets for the last month. Rankings per window are re-sorted on a background tick when sales
+ * came in or the hour rolled over, and published as one immutable set, so reading the top K is a
+ * slice of a presorted array and never waits on a sort or on the lock.
+ */
+@Service
+public class BestSellerRanking {
+    
+    private static final Logger log = LoggerFactory.getLogger(BestSellerRanking.class);
+    
+    private static final int HOURS = 24;
+    private static final int DAYS = 30;
+    
+    public enum Window {
+        DAY("24h", "24 giờ qua"),
+        WEEK("7d", "7 ngày qua"),
+        MONTH("30d", "30 ngày qua");
+        
+        private final String param;
+        private final String label;
+        
+        Window(String param, String label) {
+            this.param = param;
+            this.label = label;
+        }
+        
+        public String getParam() { return param; }
+        public String getLabel() { return label; }
+        
+        public static Window fromParam(String param) {
+            for (Window window : values()) {
+                if (window.param.equals(param)) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+    
+    @Autowired
+    private OrderDetailRepository orderDetailRepository;
+    
+    @Value("${computershop.best-sellers.rerank-interval-ms:5000}")
+    private long rerankIntervalMs;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    private volatile Map<Window, Ranking> rankings = emptyRankings();
+    private long rankedHour = -1;
+    private boolean dirty = true;
+    private ScheduledExecutorService scheduler;
+    
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "best-seller-rerank");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rerankIfStale();
+            } catch (RuntimeException e) {
+                log.warn("Best-seller rerank failed, keeping the previous rankings", e);
+            }
+        }, rerankIntervalMs, rerankIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime since = LocalDateTime.now().minusDays(DAYS);
+        List<Object[]> rows = orderDetailRepository.findUnitsSoldSince(since);
+        long now = currentHour();
+        lock.writeLock().lock();
+        try {
+            counters.clear();
+            for (Object[] row : rows) {
+                long hour = toHour((LocalDateTime) row[1]);
+                int units = ((Number) row[2]).intValue();
+                counters.computeIfAbsent((Integer) row[0], id -> new Counter(now)).add(now, hour, units);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rerankIfStale();
+    }
+    
+    /**
+     * Counts units for an order line, after commit when called inside a transaction.
+     */
+    public void recordSale(Integer productId, int quantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applySale(productId, quantity);
+                }
+            });
+        } else {
+            applySale(productId, quantity);
+        }
+    }
+    
+    public List<RankedProduct> top(Window window, int limit) {
+        Ranking ranking = ranking(window);
+        int count = Math.min(Math.max(limit, 0), ranking.productIds.length);
+        List<RankedProduct> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new RankedProduct(ranking.productIds[i], ranking.unitsSold[i]));
+        }
+        return result;
+    }
+    
+    /**
+     * Product ids that sold at least one unit in the window, best seller first, ties by id.
+     */
+    public int[] rankedIds(Window window) {
+        return ranking(window).productIds;
+    }
+    
+    private Ranking ranking(Window window) {
+        return rankings.get(window);
+    }
+    
+    /**
+     * Re-sorts the rankings when sales were recorded or the hour rolled over since the last sort.
+     * Called from the background tick, so sales show up in the rankings within one interval.
+     */
+    private void rerankIfStale() {
+        long now = currentHour();
+        lock.writeLock().lock();
+        try {
+            if (dirty || rankedHour != now) {
+                rerank(now);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void rerank(long now) {
+        Map<Window, long[]> keys = new EnumMap<>(Window.class);
+        Map<Window, Integer> sizes = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            keys.put(window, new long[counters.size()]);
+            sizes.put(window, 0);
+        }
+        
+        Iterator<Map.Entry<Integer, Counter>> entries = counters.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, Counter> entry = entries.next();
+            Counter counter = entry.getValue();
+            counter.advance(now);
+            if (counter.total(Window.MONTH) == 0) {
+                entries.remove();
+                continue;
+            }
+            for (Window window : Window.values()) {
+                int units = counter.total(window);
+                if (units > 0) {
+                    int size = sizes.get(window);
+                    // descending units, ascending id, as one ascending long
+                    keys.get(window)[size] = ((long) (Integer.MAX_VALUE - units) << 32) | entry.getKey();
+                    sizes.put(window, size + 1);
+                }
+            }
+        }
+        
+        Map<Window, Ranking> sortedRankings = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            long[] sorted = Arrays.copyOf(keys.get(window), sizes.get(window));
+            Arrays.sort(sorted);
+            int[] ids = new int[sorted.length];
+            int[] units = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                ids[i] = (int) sorted[i];
+                units[i] = Integer.MAX_VALUE - (int) (sorted[i] >>> 32);
+            }
+            sortedRankings.put(window, new Ranking(ids, units));
+        }
+        rankings = sortedRankings;
+        rankedHour = now;
+        dirty = false;
+    }
+    
+    private void applySale(Integer productId, int quantity) {
+        if (productId == null || quantity <= 0) {
+            return;
+        }
+        long now = currentHour();
+        lock.writeLock().lock();
+        try {
+            counters.computeIfAbsent(productId, id -> new Counter(now)).add(now, now, quantity);
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static Map<Window, Ranking> emptyRankings() {
+        Map<Window, Ranking> empty = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            empty.put(window, new Ranking(new int[0], new int[0]));
+        }
+        return empty;
+    }
+    
+    private static long currentHour() {
+        return TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis());
+    }
+    
+    private static long toHour(LocalDateTime time) {
+        return TimeUnit.MILLISECONDS.toHours(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+    
+    private static final class Counter {
+        private final int[] hourly = new int[HOURS];
+        private final int[] daily = new int[DAYS];
+        private long hour;
+        
+        private Counter(long now) {
+            this.hour = now;
+        }
+        
+        private void add(long now, long atHour, int units) {
+            advance(now);
+            if (atHour > now - HOURS && atHour <= now) {
+                hourly[(int) (atHour % HOURS)] += units;
+            }
+            long atDay = atHour / HOURS;
+            if (atDay > now / HOURS - DAYS && atDay <= now / HOURS) {
+                daily[(int) (atDay % DAYS)] += units;
+            }
+        }
+        
+        /** Zeroes buckets that slid out of the windows since the last update. */
+        private void advance(long now) {
+            for (long h = hour + 1; h <= now && h <= hour + HOURS; h++) {
+                hourly[(int) (h % HOURS)] = 0;
+            }
+            long day = hour / HOURS;
+            long today = now / HOURS;
+            for (long d = day + 1; d <= today && d <= day + DAYS; d++) {
+                daily[(int) (d % DAYS)] = 0;
+            }
+            hour = Math.max(hour, now);
+        }
+        
+        private int total(Window window) {
+            switch (window) {
+                case DAY:
+                    return Arrays.stream(hourly).sum();
+                case WEEK:
+                    int units = 0;
+                    long today = hour / HOURS;
+                    for (long d = today; d > today - 7; d--) {
+                        units += daily[(int) (d % DAYS)];
+                    }
+                    return units;
+                case MONTH:
+                default:
+                    return Arrays.stream(daily).sum();
+            }
+        }
+    }
+    
+    private static final class Ranking {
+        private final int[] productIds;
+        private final int[] unitsSold;
+        
+        private Ranking(int[] productIds, int[] unitsSold) {
+            this.productIds = productIds;
+            this.unitsSold = unitsSold;
+        }
+    }
+    
+    public static class RankedProduct {
+        private final Integer productId;
+        private final int unitsSold;
+        
+        public RankedProduct(Integer productId, int unitsSold) {
+            this.productId = productId;
+            this.unitsSold = unitsSold;
+        }
+        
+        public Integer getProductId() { return productId; }
+        public int getUnitsSold() { return unitsSold; }
+    }
+}
@@ -0,0 +1,42 @@
+package com.computershop.main.services;
+
+import com.computershop.main.repositories.CartItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Item count per user for the header badge. A user's count is read from the database once, on
+ * first access, and from then on kept current by {@link CartStore} under the cart's own lock, so
+ * serving the badge never touches the database. Entries are one boxed int per user and are never
+ * dropped: a cart with unflushed changes must not fall back to the stale database sum.
+ */
+@Service
+public class CartItemCounter {
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    private final Map<Integer, Integer> counts = new ConcurrentHashMap<>();
+    
+    public int get(Integer userId) {
+        if (userId == null) {
+            return 0;
+        }
+        return counts.computeIfAbsent(userId, id -> (int) cartItemRepository.sumQuantityByUserId(id));
+    }
+    
+    void set(Integer userId, int count) {
+        counts.put(userId, count);
+    }
+    
+    /**
+     * Strong validator for a count response; the body is nothing but the count, so the count is
+     * the version.
+     */
+    public static String etag(int count) {
+        return "\"cart-" + count + "\"";
+    }
+}
@@ -1,145 +1,229 @@
 package com.computershop.main.services;
 
-import com.computershop.main.entities.Cart;
-import com.computershop.main.entities.CartItem;
-import com.computershop.main.entities.Product;
-import com.computershop.main.entities.User;
-import com.computershop.main.repositories.CartRepository;
-import com.computershop.main.repositories.CartItemRepository;
-import com.computershop.main.repositories.ProductRepository;
+import com.computershop.main.entities.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class CartService {
     
+    private static final Logger log = LoggerFactory.getLogger(CartService.class);
+    
+    @Autowired
+    private CartStore cartStore;
+    
     @Autowired
-    private CartRepository cartRepository;
+    private CartItemCounter cartItemCounter;
     
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private ProductService productService;
     
     @Autowired
-    private ProductRepository productRepository;
+    private CheckoutService checkoutService;
     
-    public Optional<Cart> getCartByUserId(Integer userId) {
-        return cartRepository.findByUserIdWithItems(userId);
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+    
+    public void addToCart(Integer userId, Integer productId, Integer quantity) {
+        requirePositive(quantity);
+        requireStock(userId, productId, cartStore.getQuantity(userId, productId) + quantity);
+        cartStore.add(userId, productId, quantity);
     }
     
-    public Cart getOrCreateCart(User user) {
-        return cartRepository.findByUser(user)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart(user);
-                    return cartRepository.save(newCart);
-                });
+    public void addToCart(GuestCart guestCart, Integer productId, Integer quantity) {
+        requirePositive(quantity);
+        requireStock(null, productId, guestCart.quantityOf(productId) + quantity);
+        guestCart.add(productId, quantity);
     }
     
-    @Transactional
-    public CartItem addToCart(Integer userId, Integer productId, Integer quantity) {
-        Cart cart = cartRepository.findByUserIdWithItems(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
-        
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
-        
-        if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Not enough stock. Available: " + product.getStockQuantity());
+    public void updateCartItemQuantity(Integer userId, Integer productId, Integer quantity) {
+        requirePositive(quantity);
+        requireStock(userId, productId, quantity);
+        cartStore.setQuantity(userId, productId, quantity);
+    }
+    
+    public void updateCartItemQuantity(GuestCart guestCart, Integer productId, Integer quantity) {
+        requirePositive(quantity);
+        requireStock(null, productId, quantity);
+        guestCart.set(productId, quantity);
+    }
+    
+    public void removeFromCart(Integer userId, Integer productId) {
+        cartStore.remove(userId, productId);
+    }
+    
+    public void clearCart(Integer userId) {
+        cartStore.clear(userId);
+        inventoryReservationService.release(userId);
+    }
+    
+    /**
+     * Moves a guest cart into the user's cart at login. Quantities of products in both carts are
+     * added, capped at the current stock, and all lines are applied in one store update; the
+     * guest cart is left empty.
+     */
+    public void mergeGuestCart(Integer userId, GuestCart guestCart) {
+        if (guestCart == null || guestCart.isEmpty()) {
+            return;
         }
-        
-        Optional<CartItem> existingItem = cartItemRepository.findByCartAndProduct(cart, product);
-        
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            int newQuantity = item.getQuantity() + quantity;
-            
-            if (product.getStockQuantity() < newQuantity) {
-                throw new RuntimeException("Not enough stock. Available: " + product.getStockQuantity());
+        Map<Integer, Integer> existing = cartStore.getItems(userId);
+        Map<Integer, Integer> merged = new LinkedHashMap<>();
+        for (int i = 0; i < guestCart.size(); i++) {
+            int productId = guestCart.productIdAt(i);
+            Optional<ProductCache.ProductView> product = productService.getProductView(productId);
+            Integer stock = product.map(ProductCache.ProductView::getStockQuantity).orElse(null);
+            // an out-of-stock line is left as it is rather than merged down to zero, which would delete it
+            if (stock == null || stock <= 0) {
+                continue;
             }
-            
-            item.setQuantity(newQuantity);
-            cart.setUpdatedAt(LocalDateTime.now());
-            cartRepository.save(cart);
-            return cartItemRepository.save(item);
-        } else {
-            CartItem newItem = new CartItem(cart, product, quantity);
-            cart.addCartItem(newItem);
-            cartRepository.save(cart);
-            return newItem;
+            int quantity = existing.getOrDefault(productId, 0) + guestCart.quantityAt(i);
+            merged.put(productId, Math.min(quantity, stock));
         }
+        cartStore.setAll(userId, merged);
+        guestCart.clear();
+    }
+    
+    /**
+     * Holds the cart's stock for the user while they fill in the checkout form.
+     *
+     * @throws CheckoutService.CheckoutException when some line cannot be held
+     */
+    public void startCheckout(Integer userId) {
+        inventoryReservationService.reserve(userId, cartStore.getItems(userId));
     }
     
-    @Transactional
-    public void updateCartItemQuantity(Integer cartItemId, Integer quantity) {
-        CartItem item = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found: " + cartItemId));
+    /**
+     * Places an order for everything in the user's cart and takes the ordered quantities off the
+     * cart once the order has been committed; lines added from another tab meanwhile are kept. The hold is renewed first so it matches the cart being ordered; the order
+     * releases it on commit.
+     */
+    public Order checkout(Integer userId) {
+        Map<Integer, Integer> cart = cartStore.getItems(userId);
+        inventoryReservationService.reserve(userId, cart);
         
-        if (quantity <= 0) {
-            throw new RuntimeException("Quantity must be greater than 0");
-        }
+        List<CheckoutService.CheckoutItem> items = new ArrayList<>();
+        cart.forEach((productId, quantity) -> items.add(new CheckoutService.CheckoutItem(productId, quantity)));
         
-        if (item.getProduct().getStockQuantity() < quantity) {
-            throw new RuntimeException("Not enough stock. Available: " + item.getProduct().getStockQuantity());
+        Order order = checkoutService.placeOrder(userId, items);
+        cartStore.subtractAll(userId, cart);
+        try {
+            // write-through: a crash before the next background flush must not bring the items back
+            cartStore.flush(userId);
+        } catch (RuntimeException e) {
+            log.warn("Cart flush after order {} failed, left to the background flush", order.getOrderId(), e);
         }
-        
-        item.setQuantity(quantity);
-        item.getCart().setUpdatedAt(LocalDateTime.now());
-        cartItemRepository.save(item);
+        return order;
     }
     
-    @Transactional
-    public void removeFromCart(Integer cartItemId) {
-        CartItem item = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found: " + cartItemId));
-        
-        Cart cart = item.getCart();
-        cart.removeCartItem(item);
-        cartItemRepository.delete(item);
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
+    /**
+     * Lines, total and item count of the user's cart, from the in-memory cart and cached
+     * product views.
+     */
+    public CartView getCartView(Integer userId) {
+        return buildView(cartStore.getItems(userId));
     }
     
-    @Transactional
-    public void clearCart(Integer userId) {
-        Cart cart = cartRepository.findByUserIdWithItems(userId)
-                .orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
-        
-        cart.getCartItems().clear();
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
+    public CartView getCartView(GuestCart guestCart) {
+        Map<Integer, Integer> items = new LinkedHashMap<>();
+        for (int i = 0; i < guestCart.size(); i++) {
+            items.put(guestCart.productIdAt(i), guestCart.quantityAt(i));
+        }
+        return buildView(items);
     }
     
-    public BigDecimal getCartTotal(Integer userId) {
-        Optional<Cart> cartOpt = cartRepository.findByUserIdWithItems(userId);
-        
-        if (cartOpt.isEmpty()) {
-            return BigDecimal.ZERO;
+    /**
+     * Badge count; served from {@link CartItemCounter} without loading the cart.
+     */
+    public int getCartItemCount(Integer userId) {
+        return cartItemCounter.get(userId);
+    }
+    
+    private CartView buildView(Map<Integer, Integer> items) {
+        List<CartLine> lines = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        int itemCount = 0;
+        for (Map.Entry<Integer, Integer> item : items.entrySet()) {
+            Optional<ProductCache.ProductView> product = productService.getProductView(item.getKey());
+            if (product.isEmpty()) {
+                continue;
+            }
+            CartLine line = new CartLine(product.get(), item.getValue());
+            lines.add(line);
+            total = total.add(line.getSubtotal());
+            itemCount += line.getQuantity();
         }
-        
-        return cartOpt.get().getCartItems().stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new CartView(lines, total, itemCount);
     }
     
-    public int getCartItemCount(Integer userId) {
-        Optional<Cart> cartOpt = cartRepository.findByUserIdWithItems(userId);
+    private void requirePositive(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Quantity must be greater than 0");
+        }
+    }
+    
+    /**
+     * Checks the quantity against stock not held by other customers' checkouts.
+     */
+    private void requireStock(Integer userId, Integer productId, int quantity) {
+        ProductCache.ProductView product = productService.getProductView(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
+        int available = userId != null
+                ? product.getStockQuantity() - inventoryReservationService.getHeldByOthers(userId, productId)
+                : inventoryReservationService.getAvailable(productId);
+        if (available < quantity) {
+            throw new RuntimeException("Not enough stock. Available: " + Math.max(available, 0));
+        }
+    }
+    
+    public static class CartView {
+        private final List<CartLine> items;
+        private final BigDecimal total;
+        private final int itemCount;
         
-        if (cartOpt.isEmpty()) {
-            return 0;
+        public CartView(List<CartLine> items, BigDecimal total, int itemCount) {
+            this.items = List.copyOf(items);
+            this.total = total;
+            this.itemCount = itemCount;
         }
         
-        return cartOpt.get().getCartItems().stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        public List<CartLine> getItems() { return items; }
+        public BigDecimal getTotal() { return total; }
+        public int getItemCount() { return itemCount; }
+        public boolean isEmpty() { return items.isEmpty(); }
     }
     
-    public List<CartItem> getCartItems(Integer userId) {
-        Optional<Cart> cartOpt = cartRepository.findByUserIdWithItems(userId);
-        return cartOpt.map(Cart::getCartItems).orElse(List.of());
+    public static class CartLine {
+        private final Integer productId;
+        private final String productName;
+        private final BigDecimal price;
+        private final Integer quantity;
+        private final String imageUrl;
+        private final Integer stockQuantity;
+        
+        public CartLine(ProductCache.ProductView product, Integer quantity) {
+            this.productId = product.getProductId();
+            this.productName = product.getProductName();
+            this.price = product.getPrice();
+            this.quantity = quantity;
+            this.imageUrl = product.getImageUrl();
+            this.stockQuantity = product.getStockQuantity();
+        }
+        
+        public Integer getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public BigDecimal getPrice() { return price; }
+        public Integer getQuantity() { return quantity; }
+        public BigDecimal getSubtotal() { return price.multiply(BigDecimal.valueOf(quantity)); }
+        public String getImageUrl() { return imageUrl; }
+        public Integer getStockQuantity() { return stockQuantity; }
     }
 }
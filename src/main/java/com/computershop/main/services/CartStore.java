@@ -0,0 +1,423 @@
+package com.computershop.main.services;
+
+import com.computershop.main.repositories.CartRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind working set of account carts. Carts are loaded on first use into a bounded
+ * access-ordered map, mutated in memory, and written to carts/cart_items by a background flush
+ * that only touches lines changed since the last write. Evicted carts are flushed before they
+ * are dropped, checkout flushes the emptied cart through at once, and shutdown flushes everything
+ * still pending. Lines whose product has been deleted meanwhile are dropped at write time.
+ */
+@Service
+public class CartStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+    
+    private static final String FIND_CART_SQL = "SELECT cart_id FROM carts WHERE user_id = ?";
+    private static final String INSERT_CART_SQL =
+            "INSERT INTO carts (user_id, created_at, updated_at) VALUES (?, ?, ?)";
+    private static final String TOUCH_CART_SQL = "UPDATE carts SET updated_at = ? WHERE cart_id = ?";
+    private static final String UPDATE_ITEM_SQL =
+            "UPDATE cart_items SET quantity = ? WHERE cart_id = ? AND product_id = ?";
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity, added_at) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_ITEM_SQL = "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?";
+    
+    @Autowired
+    private CartRepository cartRepository;
+    
+    @Autowired
+    private CartItemCounter cartItemCounter;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${computershop.cart-store.max-size:10000}")
+    private int maxSize;
+    
+    @Value("${computershop.cart-store.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+    
+    private final Object lock = new Object();
+    private final Map<Integer, ActiveCart> evicting = new ConcurrentHashMap<>();
+    private LinkedHashMap<Integer, ActiveCart> carts;
+    private TransactionTemplate writeTransaction;
+    private ScheduledExecutorService scheduler;
+    
+    @PostConstruct
+    public void start() {
+        carts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ActiveCart> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                evicting.put(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        // a flush never joins the caller's transaction, so it cannot be rolled back with it
+        writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-store-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+        flushAll();
+    }
+    
+    /**
+     * Product id to quantity, in the order the products were first added.
+     */
+    public Map<Integer, Integer> getItems(Integer userId) {
+        ActiveCart cart = cart(userId);
+        synchronized (cart) {
+            Map<Integer, Integer> items = new LinkedHashMap<>();
+            cart.lines.forEach((productId, line) -> items.put(productId, line.quantity));
+            return items;
+        }
+    }
+    
+    public int getQuantity(Integer userId, Integer productId) {
+        ActiveCart cart = cart(userId);
+        synchronized (cart) {
+            Line line = cart.lines.get(productId);
+            return line != null ? line.quantity : 0;
+        }
+    }
+    
+    public int getItemCount(Integer userId) {
+        ActiveCart cart = cart(userId);
+        synchronized (cart) {
+            return cart.itemCount();
+        }
+    }
+    
+    public void add(Integer userId, Integer productId, int quantity) {
+        mutate(userId, cart -> cart.set(productId, cart.quantityOf(productId) + quantity));
+    }
+    
+    /**
+     * Sets the line's quantity; zero or less removes the line.
+     */
+    public void setQuantity(Integer userId, Integer productId, int quantity) {
+        mutate(userId, cart -> cart.set(productId, quantity));
+    }
+    
+    /**
+     * Sets several lines at once under one lock acquisition, so they reach the database in a
+     * single flush; zero or less removes a line.
+     */
+    public void setAll(Integer userId, Map<Integer, Integer> quantities) {
+        mutate(userId, cart -> quantities.forEach(cart::set));
+    }
+    
+    /**
+     * Takes the given quantities off their lines under the cart's lock, removing lines that reach
+     * zero, so anything added since the quantities were read stays in the cart.
+     */
+    public void subtractAll(Integer userId, Map<Integer, Integer> quantities) {
+        mutate(userId, cart -> quantities.forEach((productId, quantity) ->
+                cart.set(productId, cart.quantityOf(productId) - quantity)));
+    }
+    
+    public void remove(Integer userId, Integer productId) {
+        mutate(userId, cart -> cart.set(productId, 0));
+    }
+    
+    public void clear(Integer userId) {
+        mutate(userId, cart -> new ArrayList<>(cart.lines.keySet()).forEach(productId -> cart.set(productId, 0)));
+    }
+    
+    /**
+     * Writes the user's pending changes now, in its own transaction.
+     */
+    public void flush(Integer userId) {
+        ActiveCart cart;
+        synchronized (lock) {
+            cart = carts.get(userId);
+        }
+        if (cart == null) {
+            cart = evicting.get(userId);
+        }
+        if (cart != null) {
+            synchronized (cart) {
+                write(cart);
+            }
+        }
+    }
+    
+    public void flushAll() {
+        List<ActiveCart> pending;
+        synchronized (lock) {
+            pending = new ArrayList<>(carts.values());
+        }
+        for (ActiveCart cart : pending) {
+            try {
+                synchronized (cart) {
+                    write(cart);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cart flush failed for user {}, changes kept for the next attempt", cart.userId, e);
+            }
+        }
+        flushEvicted();
+    }
+    
+    private void mutate(Integer userId, Consumer<ActiveCart> change) {
+        while (true) {
+            ActiveCart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.detached) {
+                    continue;
+                }
+                change.accept(cart);
+                cartItemCounter.set(userId, cart.itemCount());
+                return;
+            }
+        }
+    }
+    
+    private ActiveCart cart(Integer userId) {
+        synchronized (lock) {
+            ActiveCart cart = carts.get(userId);
+            if (cart == null) {
+                cart = evicting.get(userId);
+                if (cart != null) {
+                    carts.put(userId, cart);
+                }
+            }
+            if (cart != null) {
+                return cart;
+            }
+        }
+        
+        ActiveCart loaded = load(userId);
+        ActiveCart result;
+        synchronized (lock) {
+            result = carts.get(userId);
+            if (result == null) {
+                result = evicting.get(userId);
+            }
+            if (result == null) {
+                result = loaded;
+            }
+            carts.put(userId, result);
+        }
+        flushEvicted();
+        return result;
+    }
+    
+    private ActiveCart load(Integer userId) {
+        ActiveCart cart = new ActiveCart(userId);
+        for (Object[] row : cartRepository.findCartContentsByUserId(userId)) {
+            cart.cartId = (Integer) row[0];
+            if (row[1] != null) {
+                cart.lines.put((Integer) row[1], new Line((Integer) row[2], (LocalDateTime) row[3], false));
+            }
+        }
+        return cart;
+    }
+    
+    private void flushEvicted() {
+        for (Map.Entry<Integer, ActiveCart> entry : evicting.entrySet()) {
+            ActiveCart cart = entry.getValue();
+            try {
+                synchronized (cart) {
+                    write(cart);
+                    synchronized (lock) {
+                        if (carts.get(entry.getKey()) != cart) {
+                            cart.detached = true;
+                        }
+                        evicting.remove(entry.getKey(), cart);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cart flush on eviction failed for user {}, keeping it pending", cart.userId, e);
+            }
+        }
+    }
+    
+    /** Caller holds the cart's monitor. */
+    private void write(ActiveCart cart) {
+        if (!cart.dirty) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(cart.updatedAt);
+        List<Integer> dropped = new ArrayList<>();
+        Integer cartId = writeTransaction.execute(status -> {
+            dropped.clear();
+            int id = cart.cartId != null ? cart.cartId : findOrCreateCart(cart.userId, now);
+            
+            List<Object[]> deletes = new ArrayList<>();
+            for (Integer productId : cart.removed) {
+                deletes.add(new Object[] { id, productId });
+            }
+            jdbcTemplate.batchUpdate(DELETE_ITEM_SQL, deletes);
+            
+            List<Map.Entry<Integer, Line>> changed = new ArrayList<>();
+            List<Object[]> updates = new ArrayList<>();
+            for (Map.Entry<Integer, Line> entry : cart.lines.entrySet()) {
+                if (entry.getValue().dirty) {
+                    changed.add(entry);
+                    updates.add(new Object[] { entry.getValue().quantity, id, entry.getKey() });
+                }
+            }
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_ITEM_SQL, updates);
+            List<Map.Entry<Integer, Line>> missing = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    missing.add(changed.get(i));
+                }
+            }
+            Set<Integer> live = findExistingProducts(missing);
+            List<Object[]> inserts = new ArrayList<>();
+            for (Map.Entry<Integer, Line> entry : missing) {
+                if (live.contains(entry.getKey())) {
+                    inserts.add(new Object[] { id, entry.getKey(), entry.getValue().quantity,
+                            Timestamp.valueOf(entry.getValue().addedAt) });
+                } else {
+                    dropped.add(entry.getKey());
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, inserts);
+            
+            jdbcTemplate.update(TOUCH_CART_SQL, now, id);
+            return id;
+        });
+        
+        cart.cartId = cartId;
+        cart.removed.clear();
+        cart.lines.values().forEach(line -> line.dirty = false);
+        cart.dirty = false;
+        if (!dropped.isEmpty()) {
+            // a line for a deleted product would break the foreign key on every flush
+            log.info("Dropped cart lines of deleted products {} for user {}", dropped, cart.userId);
+            dropped.forEach(cart.lines::remove);
+            cartItemCounter.set(cart.userId, cart.itemCount());
+        }
+    }
+    
+    private Set<Integer> findExistingProducts(List<Map.Entry<Integer, Line>> lines) {
+        if (lines.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(lines.size(), "?"));
+        Object[] ids = lines.stream().map(Map.Entry::getKey).toArray();
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT product_id FROM products WHERE product_id IN (" + placeholders + ")", Integer.class, ids));
+    }
+    
+    private int findOrCreateCart(Integer userId, Timestamp now) {
+        List<Integer> existing = jdbcTemplate.queryForList(FIND_CART_SQL, Integer.class, userId);
+        if (!existing.isEmpty()) {
+            return existing.get(0);
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_CART_SQL, Statement.RETURN_GENERATED_KEYS);
+            statement.setInt(1, userId);
+            statement.setTimestamp(2, now);
+            statement.setTimestamp(3, now);
+            return statement;
+        }, keys);
+        return keys.getKey().intValue();
+    }
+    
+    private static final class ActiveCart {
+        private final Integer userId;
+        private final LinkedHashMap<Integer, Line> lines = new LinkedHashMap<>();
+        private final Set<Integer> removed = new HashSet<>();
+        private Integer cartId;
+        private boolean dirty;
+        private boolean detached;
+        private LocalDateTime updatedAt = LocalDateTime.now();
+        
+        private ActiveCart(Integer userId) {
+            this.userId = userId;
+        }
+        
+        private int quantityOf(Integer productId) {
+            Line line = lines.get(productId);
+            return line != null ? line.quantity : 0;
+        }
+        
+        private int itemCount() {
+            return lines.values().stream().mapToInt(line -> line.quantity).sum();
+        }
+        
+        private void set(Integer productId, int quantity) {
+            Line line = lines.get(productId);
+            if (quantity <= 0) {
+                if (line == null) {
+                    return;
+                }
+                lines.remove(productId);
+                removed.add(productId);
+            } else if (line == null) {
+                removed.remove(productId);
+                lines.put(productId, new Line(quantity, LocalDateTime.now(), true));
+            } else {
+                line.quantity = quantity;
+                line.dirty = true;
+            }
+            dirty = true;
+            updatedAt = LocalDateTime.now();
+        }
+    }
+    
+    private static final class Line {
+        private int quantity;
+        private final LocalDateTime addedAt;
+        private boolean dirty;
+        
+        private Line(int quantity, LocalDateTime addedAt, boolean dirty) {
+            this.quantity = quantity;
+            this.addedAt = addedAt != null ? addedAt : LocalDateTime.now();
+            this.dirty = dirty;
+        }
+    }
+}
@@ -0,0 +1,621 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Product;
+import com.computershop.main.repositories.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmaps of product ids per category, price band and stock state. Filters are OR within a
+ * facet and AND across facets; counts for a facet ignore that facet's own selection so the
+ * listing can show how many products each other choice would give. Price, stock and name for
+ * sorting are read from the off-heap {@link ProductStore} and price ranges and price order come
+ * from the {@link PriceIndex}, name order from the {@link NameOrderIndex}, so listing never
+ * touches entities until the page rows are hydrated.
+ */
+@Component
+public class CatalogFacetIndex {
+    
+    public static final int LOW_STOCK_THRESHOLD = 5;
+    
+    public enum StockState {
+        IN_STOCK("in-stock", "Còn hàng"),
+        LOW_STOCK("low-stock", "Sắp hết hàng"),
+        OUT_OF_STOCK("out-of-stock", "Hết hàng");
+        
+        private final String param;
+        private final String label;
+        
+        StockState(String param, String label) {
+            this.param = param;
+            this.label = label;
+        }
+        
+        public String getParam() { return param; }
+        public String getLabel() { return label; }
+        
+        public static StockState fromParam(String param) {
+            for (StockState state : values()) {
+                if (state.param.equals(param)) {
+                    return state;
+                }
+            }
+            return null;
+        }
+    }
+    
+    public enum PriceBand {
+        UNDER_1M("under-1m", "Dưới 1 triệu", 0, 1_000_000),
+        FROM_1M_TO_3M("1m-3m", "1 - 3 triệu", 1_000_000, 3_000_000),
+        FROM_3M_TO_5M("3m-5m", "3 - 5 triệu", 3_000_000, 5_000_000),
+        FROM_5M_TO_10M("5m-10m", "5 - 10 triệu", 5_000_000, 10_000_000),
+        FROM_10M_TO_20M("10m-20m", "10 - 20 triệu", 10_000_000, 20_000_000),
+        OVER_20M("over-20m", "Trên 20 triệu", 20_000_000, Long.MAX_VALUE);
+        
+        private final String param;
+        private final String label;
+        private final long upperCents;
+        
+        PriceBand(String param, String label, long lower, long upper) {
+            this.param = param;
+            this.label = label;
+            this.upperCents = upper == Long.MAX_VALUE ? Long.MAX_VALUE : upper * 100;
+        }
+        
+        public String getParam() { return param; }
+        public String getLabel() { return label; }
+        
+        public static PriceBand ofCents(long priceCents) {
+            for (PriceBand band : values()) {
+                if (priceCents < band.upperCents) {
+                    return band;
+                }
+            }
+            return OVER_20M;
+        }
+        
+        public static PriceBand fromParam(String param) {
+            for (PriceBand band : values()) {
+                if (band.param.equals(param)) {
+                    return band;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private static final int REBUILD_BATCH_SIZE = 5000;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private ProductStore productStore;
+    
+    @Autowired
+    private PriceIndex priceIndex;
+    
+    @Autowired
+    private NameOrderIndex nameOrderIndex;
+    
+    @Autowired
+    private BestSellerRanking bestSellerRanking;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Bitmaps bitmaps = new Bitmaps();
+    
+    // rebuild bookkeeping, guarded by rebuildState; generation counts the loads swapped in so far
+    private final Object rebuildState = new Object();
+    private long generation;
+    private boolean rebuilding;
+    private int readThroughId;
+    private final List<StockDelta> pendingDeltas = new ArrayList<>();
+    private final Map<Integer, Product> pendingWrites = new HashMap<>();
+    private TransactionTemplate batchRead;
+    
+    @PostConstruct
+    public void init() {
+        // rows read by a batch stay share-locked until it commits, so a stock UPDATE either lands
+        // before the read (which then waits for it to commit) or after the batch is done
+        batchRead = new TransactionTemplate(transactionManager);
+        batchRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        batchRead.setReadOnly(true);
+    }
+    
+    /**
+     * Reloads the store and bitmaps in keyset batches into structures of its own and swaps them in
+     * at the end, so listings and availability checks keep being answered from the current index
+     * during the database scan. Stock deltas committed meanwhile are applied to the new index only
+     * for rows that were read before the delta's UPDATE, and product saves and deletes made
+     * meanwhile are replayed on it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildState) {
+            rebuilding = true;
+            readThroughId = 0;
+            pendingDeltas.clear();
+            pendingWrites.clear();
+        }
+        try {
+            ProductStore staged = new ProductStore();
+            Bitmaps stagedBitmaps = new Bitmaps();
+            int afterId = 0;
+            int count = 0;
+            int[] ids = new int[REBUILD_BATCH_SIZE];
+            long[] prices = new long[REBUILD_BATCH_SIZE];
+            List<Object[]> rows;
+            do {
+                int from = afterId;
+                rows = batchRead.execute(tx -> readBatch(from));
+                for (Object[] row : rows) {
+                    int productId = (Integer) row[0];
+                    long priceCents = ProductStore.toCents((BigDecimal) row[5]);
+                    int stock = row[6] != null ? (Integer) row[6] : 0;
+                    int categoryId = row[3] != null ? (Integer) row[3] : ProductStore.NONE;
+                    staged.put(productId, priceCents, stock, categoryId,
+                            row[4] != null ? (Integer) row[4] : ProductStore.NONE,
+                            toMillis(row[7]), (String) row[1], (String) row[2]);
+                    stagedBitmaps.add(productId, categoryId, priceCents, stock);
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                        prices = Arrays.copyOf(prices, count * 2);
+                    }
+                    ids[count] = productId;
+                    prices[count++] = priceCents;
+                    afterId = productId;
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+            
+            lock.writeLock().lock();
+            try {
+                productStore.replaceWith(staged);
+                bitmaps = stagedBitmaps;
+                priceIndex.load(ids, prices, count);
+                nameOrderIndex.load(ids, count);
+                synchronized (rebuildState) {
+                    generation++;
+                    rebuilding = false;
+                    pendingWrites.forEach((productId, product) -> {
+                        if (product != null) {
+                            indexLocked(product);
+                        } else {
+                            removeLocked(productId);
+                        }
+                    });
+                    for (StockDelta delta : pendingDeltas) {
+                        applyStockDeltaLocked(delta.productId, delta.delta);
+                    }
+                    pendingDeltas.clear();
+                    pendingWrites.clear();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            synchronized (rebuildState) {
+                rebuilding = false;
+            }
+        }
+    }
+    
+    // runs inside the batch transaction: the rows are marked read while their locks are still held
+    private List<Object[]> readBatch(int afterId) {
+        List<Object[]> rows = productRepository.findFacetFieldsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+        synchronized (rebuildState) {
+            if (rows.size() < REBUILD_BATCH_SIZE) {
+                // products created from here on arrive through index() and are replayed
+                readThroughId = Integer.MAX_VALUE;
+            } else {
+                readThroughId = (Integer) rows.get(rows.size() - 1)[0];
+            }
+        }
+        return rows;
+    }
+    
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            indexLocked(product);
+            synchronized (rebuildState) {
+                if (rebuilding) {
+                    pendingWrites.put(product.getProductId(), product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            synchronized (rebuildState) {
+                if (rebuilding) {
+                    pendingWrites.put(productId, null);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Applies a stock change made by a bulk UPDATE; call it right after the UPDATE. Inside a
+     * transaction the change is applied after commit so a rolled back checkout leaves the bitmaps
+     * untouched.
+     */
+    public void adjustStock(Integer productId, int delta) {
+        StockDelta change = new StockDelta(productId, delta, firstGenerationWith(productId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyStockDelta(change);
+                }
+            });
+        } else {
+            applyStockDelta(change);
+        }
+    }
+    
+    /**
+     * Committed stock from the store, or -1 when the product is not indexed.
+     */
+    public int getStock(Integer productId) {
+        lock.readLock().lock();
+        try {
+            return productStore.contains(productId) ? productStore.getStock(productId) : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public BitSet filter(FacetQuery query) {
+        lock.readLock().lock();
+        try {
+            return match(query, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public FacetCounts count(FacetQuery query) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> categoryCounts = new HashMap<>();
+            BitSet base = match(query, Facet.CATEGORY);
+            for (Map.Entry<Integer, BitSet> category : bitmaps.byCategory.entrySet()) {
+                int count = intersectionSize(base, category.getValue());
+                if (count > 0) {
+                    categoryCounts.put(category.getKey(), count);
+                }
+            }
+            
+            Map<PriceBand, Integer> priceBandCounts = new EnumMap<>(PriceBand.class);
+            base = match(query, Facet.PRICE_BAND);
+            for (PriceBand band : PriceBand.values()) {
+                priceBandCounts.put(band, intersectionSize(base, bitmaps.byPriceBand.get(band)));
+            }
+            
+            Map<StockState, Integer> stockStateCounts = new EnumMap<>(StockState.class);
+            base = match(query, Facet.STOCK_STATE);
+            for (StockState state : StockState.values()) {
+                stockStateCounts.put(state, intersectionSize(base, bitmaps.byStockState.get(state)));
+            }
+            
+            return new FacetCounts(categoryCounts, priceBandCounts, stockStateCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int countByStockState(StockState state) {
+        lock.readLock().lock();
+        try {
+            BitSet bits = bitmaps.byStockState.get(state);
+            return bits != null ? bits.cardinality() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Orders the matched ids from the presorted price, name and best-seller indexes and returns
+     * only the requested slice, so the caller hydrates just the rows it renders.
+     */
+    public List<Integer> sortedPage(BitSet ids, String sort, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            if (offset >= ids.cardinality() || limit <= 0) {
+                return List.of();
+            }
+            if ("price-asc".equals(sort) || "price-desc".equals(sort)) {
+                return priceIndex.page(ids, "price-desc".equals(sort), offset, limit);
+            }
+            if (!"popular".equals(sort)) {
+                return nameOrderIndex.page(ids, offset, limit);
+            }
+            // best sellers of the last 30 days first, then everything else by name
+            List<Integer> page = new ArrayList<>(Math.min(limit, ids.cardinality() - offset));
+            BitSet unsold = (BitSet) ids.clone();
+            int skipped = 0;
+            for (int productId : bestSellerRanking.rankedIds(BestSellerRanking.Window.MONTH)) {
+                if (!ids.get(productId)) {
+                    continue;
+                }
+                unsold.clear(productId);
+                if (skipped++ >= offset && page.size() < limit) {
+                    page.add(productId);
+                }
+            }
+            if (page.size() < limit) {
+                page.addAll(nameOrderIndex.page(unsold, Math.max(offset - skipped, 0), limit - page.size()));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private BitSet match(FacetQuery query, Facet ignored) {
+        BitSet result = (BitSet) bitmaps.all.clone();
+        if (query.getCandidates() != null) {
+            result.and(query.getCandidates());
+        }
+        if (ignored != Facet.CATEGORY) {
+            andAny(result, query.getCategoryIds(), bitmaps.byCategory);
+        }
+        if (ignored != Facet.PRICE_BAND) {
+            andAny(result, query.getPriceBands(), bitmaps.byPriceBand);
+        }
+        if (ignored != Facet.STOCK_STATE) {
+            andAny(result, query.getStockStates(), bitmaps.byStockState);
+        }
+        if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+            long min = query.getMinPrice() != null ? ProductStore.toCents(query.getMinPrice()) : Long.MIN_VALUE;
+            long max = query.getMaxPrice() != null ? ProductStore.toCents(query.getMaxPrice()) : Long.MAX_VALUE;
+            result.and(priceIndex.range(min, max));
+        }
+        return result;
+    }
+    
+    private static <K> void andAny(BitSet result, Collection<K> selected, Map<K, BitSet> bitmaps) {
+        if (selected == null || selected.isEmpty()) {
+            return;
+        }
+        BitSet union = new BitSet();
+        for (K key : selected) {
+            BitSet bits = bitmaps.get(key);
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        result.and(union);
+    }
+    
+    private static int intersectionSize(BitSet base, BitSet other) {
+        if (other == null) {
+            return 0;
+        }
+        BitSet copy = (BitSet) base.clone();
+        copy.and(other);
+        return copy.cardinality();
+    }
+    
+    /**
+     * The first load that already contains a stock UPDATE just made: a rebuild that has not read
+     * the row yet will wait for the UPDATE to commit, one that has read it will not see it.
+     */
+    private long firstGenerationWith(int productId) {
+        synchronized (rebuildState) {
+            if (!rebuilding) {
+                return generation + 1;
+            }
+            return productId > readThroughId ? generation + 1 : generation + 2;
+        }
+    }
+    
+    private void applyStockDelta(StockDelta change) {
+        lock.writeLock().lock();
+        try {
+            synchronized (rebuildState) {
+                if (generation < change.firstGeneration) {
+                    applyStockDeltaLocked(change.productId, change.delta);
+                }
+                if (rebuilding && generation + 1 < change.firstGeneration) {
+                    pendingDeltas.add(change);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void applyStockDeltaLocked(int productId, int delta) {
+        int stock = productStore.adjustStock(productId, delta);
+        if (stock >= 0) {
+            bitmaps.setStock(productId, stock);
+        }
+    }
+    
+    private void indexLocked(Product product) {
+        int productId = product.getProductId();
+        if (productStore.put(product)) {
+            nameOrderIndex.put(productId);
+        }
+        priceIndex.put(productId, productStore.getPriceCents(productId));
+        bitmaps.clear(productId);
+        bitmaps.add(productId, productStore.getCategoryId(productId), productStore.getPriceCents(productId),
+                productStore.getStock(productId));
+    }
+    
+    private void removeLocked(int productId) {
+        productStore.remove(productId);
+        priceIndex.remove(productId);
+        nameOrderIndex.remove(productId);
+        bitmaps.clear(productId);
+    }
+    
+    private static Set<StockState> stockStates(int stockQuantity) {
+        if (stockQuantity <= 0) {
+            return Set.of(StockState.OUT_OF_STOCK);
+        }
+        if (stockQuantity <= LOW_STOCK_THRESHOLD) {
+            return Set.of(StockState.IN_STOCK, StockState.LOW_STOCK);
+        }
+        return Set.of(StockState.IN_STOCK);
+    }
+    
+    private static long toMillis(Object createdAt) {
+        if (createdAt instanceof LocalDateTime) {
+            return ((LocalDateTime) createdAt).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        if (createdAt instanceof Timestamp) {
+            return ((Timestamp) createdAt).toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        return Long.MIN_VALUE;
+    }
+    
+    private enum Facet { CATEGORY, PRICE_BAND, STOCK_STATE }
+    
+    /**
+     * The bitmaps of one load; a rebuild fills a new set and swaps it in as a whole.
+     */
+    private static final class Bitmaps {
+        private final BitSet all = new BitSet();
+        private final Map<Integer, BitSet> byCategory = new HashMap<>();
+        private final Map<PriceBand, BitSet> byPriceBand = new EnumMap<>(PriceBand.class);
+        private final Map<StockState, BitSet> byStockState = new EnumMap<>(StockState.class);
+        
+        private void add(int productId, int categoryId, long priceCents, int stock) {
+            all.set(productId);
+            if (categoryId != ProductStore.NONE) {
+                byCategory.computeIfAbsent(categoryId, c -> new BitSet()).set(productId);
+            }
+            byPriceBand.computeIfAbsent(PriceBand.ofCents(priceCents), b -> new BitSet()).set(productId);
+            for (StockState state : stockStates(stock)) {
+                byStockState.computeIfAbsent(state, s -> new BitSet()).set(productId);
+            }
+        }
+        
+        private void setStock(int productId, int stock) {
+            for (BitSet bits : byStockState.values()) {
+                bits.clear(productId);
+            }
+            for (StockState state : stockStates(stock)) {
+                byStockState.computeIfAbsent(state, s -> new BitSet()).set(productId);
+            }
+        }
+        
+        private void clear(int productId) {
+            if (!all.get(productId)) {
+                return;
+            }
+            all.clear(productId);
+            Iterator<BitSet> categories = byCategory.values().iterator();
+            while (categories.hasNext()) {
+                BitSet bits = categories.next();
+                bits.clear(productId);
+                if (bits.isEmpty()) {
+                    categories.remove();
+                }
+            }
+            for (BitSet bits : byPriceBand.values()) {
+                bits.clear(productId);
+            }
+            for (BitSet bits : byStockState.values()) {
+                bits.clear(productId);
+            }
+        }
+    }
+    
+    private static final class StockDelta {
+        private final int productId;
+        private final int delta;
+        private final long firstGeneration;
+        
+        private StockDelta(int productId, int delta, long firstGeneration) {
+            this.productId = productId;
+            this.delta = delta;
+            this.firstGeneration = firstGeneration;
+        }
+    }
+    
+    public static class FacetQuery {
+        private Set<Integer> categoryIds = new HashSet<>();
+        private Set<PriceBand> priceBands = new HashSet<>();
+        private Set<StockState> stockStates = new HashSet<>();
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private BitSet candidates;
+        
+        public Set<Integer> getCategoryIds() { return categoryIds; }
+        public void setCategoryIds(Set<Integer> categoryIds) { this.categoryIds = categoryIds; }
+        
+        public Set<PriceBand> getPriceBands() { return priceBands; }
+        public void setPriceBands(Set<PriceBand> priceBands) { this.priceBands = priceBands; }
+        
+        public Set<StockState> getStockStates() { return stockStates; }
+        public void setStockStates(Set<StockState> stockStates) { this.stockStates = stockStates; }
+        
+        public BigDecimal getMinPrice() { return minPrice; }
+        public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+        
+        public BigDecimal getMaxPrice() { return maxPrice; }
+        public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+        
+        public BitSet getCandidates() { return candidates; }
+        public void setCandidates(BitSet candidates) { this.candidates = candidates; }
+    }
+    
+    public static class FacetCounts {
+        private final Map<Integer, Integer> categoryCounts;
+        private final Map<PriceBand, Integer> priceBandCounts;
+        private final Map<StockState, Integer> stockStateCounts;
+        
+        public FacetCounts(Map<Integer, Integer> categoryCounts, Map<PriceBand, Integer> priceBandCounts,
+                           Map<StockState, Integer> stockStateCounts) {
+            this.categoryCounts = categoryCounts;
+            this.priceBandCounts = priceBandCounts;
+            this.stockStateCounts = stockStateCounts;
+        }
+        
+        public Map<Integer, Integer> getCategoryCounts() { return categoryCounts; }
+        public Map<PriceBand, Integer> getPriceBandCounts() { return priceBandCounts; }
+        public Map<StockState, Integer> getStockStateCounts() { return stockStateCounts; }
+    }
+}
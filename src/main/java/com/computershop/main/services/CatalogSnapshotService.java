@@ -0,0 +1,182 @@
+package com.computershop.main.services;
+
+import com.computershop.main.repositories.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Storefront read model: an immutable, fully resolved copy of the catalog swapped in through an
+ * atomic reference. Only product and category definition changes request a rebuild; stock moves
+ * with every order, so the snapshot's stock figures are not authoritative and readers overlay the
+ * live stock from {@link CatalogFacetIndex}. Rebuilds, the startup one included, run on one
+ * background thread and requests that arrive while one is queued are folded into it. Past
+ * {@code computershop.catalog-snapshot.max-products} the snapshot keeps only the newest in-stock
+ * products; other lookups miss and callers hydrate just the rows they render.
+ */
+@Service
+public class CatalogSnapshotService {
+    
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+    
+    private static final int PARTIAL_SNAPSHOT_SIZE = 100;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Value("${computershop.catalog-snapshot.max-products:100000}")
+    private long maxProducts;
+    
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>(CatalogSnapshot.EMPTY);
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private ExecutorService executor;
+    
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Builds the first snapshot on the rebuild thread, like every later one, so two rebuilds never
+     * run at once and a slower, older one can never publish over a newer one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() throws InterruptedException, ExecutionException {
+        executor.submit(this::rebuild).get();
+    }
+    
+    public CatalogSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+    
+    /**
+     * Schedules a rebuild, after commit when called inside a transaction.
+     */
+    public void requestRebuild() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queueRebuild();
+                }
+            });
+        } else {
+            queueRebuild();
+        }
+    }
+    
+    // only ever runs on the executor's single thread
+    private void rebuild() {
+        long total = productRepository.count();
+        boolean complete = total <= maxProducts;
+        List<ProductCache.ProductView> products = (complete
+                ? productRepository.findAllWithCategoryAndImage()
+                : productRepository.findNewestInStockWithDetails(PageRequest.of(0, PARTIAL_SNAPSHOT_SIZE)))
+                .stream()
+                .map(ProductCache.ProductView::of)
+                .toList();
+        CatalogSnapshot next = new CatalogSnapshot(products, complete ? products.size() : total, complete,
+                snapshot.get().getVersion() + 1);
+        snapshot.set(next);
+    }
+    
+    private void queueRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            rebuildQueued.set(false);
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Catalog snapshot rebuild failed, keeping version {}", snapshot.get().getVersion(), e);
+            }
+        });
+    }
+    
+    public static final class CatalogSnapshot {
+        static final CatalogSnapshot EMPTY = new CatalogSnapshot(List.of(), 0, true, 0);
+        
+        private final long version;
+        private final long productCount;
+        private final boolean complete;
+        private final List<ProductCache.ProductView> products;
+        private final Map<Integer, ProductCache.ProductView> productsById;
+        private final Map<Integer, List<ProductCache.ProductView>> productsByCategoryId;
+        private final List<ProductCache.ProductView> newest;
+        
+        private CatalogSnapshot(List<ProductCache.ProductView> products, long productCount, boolean complete, long version) {
+            this.version = version;
+            this.productCount = productCount;
+            this.complete = complete;
+            this.products = List.copyOf(products);
+            
+            Map<Integer, ProductCache.ProductView> byId = new HashMap<>();
+            Map<Integer, List<ProductCache.ProductView>> byCategory = new HashMap<>();
+            List<ProductCache.ProductView> byNewest = new ArrayList<>(products);
+            for (ProductCache.ProductView product : products) {
+                byId.put(product.getProductId(), product);
+                if (product.getCategoryId() != null) {
+                    byCategory.computeIfAbsent(product.getCategoryId(), id -> new ArrayList<>()).add(product);
+                }
+            }
+            byNewest.sort(Comparator.comparing(ProductCache.ProductView::getCreatedAt,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+            
+            Map<Integer, List<ProductCache.ProductView>> frozen = new HashMap<>();
+            byCategory.forEach((id, list) -> frozen.put(id, List.copyOf(list)));
+            this.productsById = Map.copyOf(byId);
+            this.productsByCategoryId = Map.copyOf(frozen);
+            this.newest = List.copyOf(byNewest);
+        }
+        
+        public long getVersion() { return version; }
+        public List<ProductCache.ProductView> getProducts() { return products; }
+        public long getProductCount() { return productCount; }
+        public boolean isComplete() { return complete; }
+        
+        public ProductCache.ProductView getProduct(Integer productId) {
+            return productId != null ? productsById.get(productId) : null;
+        }
+        
+        public List<ProductCache.ProductView> getProductsInCategory(Integer categoryId) {
+            return productsByCategoryId.getOrDefault(categoryId, List.of());
+        }
+        
+        /**
+         * All products, newest first; callers filter on live stock.
+         */
+        public List<ProductCache.ProductView> getNewest() {
+            return newest;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.computershop.main.services;
+
+import com.computershop.main.repositories.CategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-local copy of the category list with product counts. It is loaded on first use and
+ * dropped by category or product writes, so storefront pages never join the products table
+ * just to list category names. A load that overlaps a write is returned to its caller but not
+ * kept, so a catalog read before the write can never outlive the invalidation.
+ */
+@Component
+public class CategoryCatalogCache {
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    private final Object loadLock = new Object();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Catalog catalog;
+    
+    public List<CategoryEntry> getCategories() {
+        return catalog().entries;
+    }
+    
+    public List<String> getCategoryNamesWithProducts() {
+        return catalog().namesWithProducts;
+    }
+    
+    public Optional<Integer> findCategoryId(String categoryName) {
+        if (categoryName == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(catalog().idsByName.get(categoryName));
+    }
+    
+    /**
+     * Drops the catalog now and, inside a transaction, again after commit, so a load that read
+     * the rows before the commit is not kept either.
+     */
+    public void invalidate() {
+        invalidateNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+            });
+        }
+    }
+    
+    private void invalidateNow() {
+        synchronized (generation) {
+            generation.incrementAndGet();
+            catalog = null;
+        }
+    }
+    
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            current = catalog;
+            if (current != null) {
+                return current;
+            }
+            long startedAt = generation.get();
+            current = load();
+            synchronized (generation) {
+                if (generation.get() == startedAt) {
+                    catalog = current;
+                }
+            }
+            return current;
+        }
+    }
+    
+    private Catalog load() {
+        List<CategoryEntry> entries = new ArrayList<>();
+        List<String> namesWithProducts = new ArrayList<>();
+        Map<String, Integer> idsByName = new HashMap<>();
+        
+        for (Object[] row : categoryRepository.countProductsPerCategory()) {
+            CategoryEntry entry = new CategoryEntry((Integer) row[0], (String) row[1], ((Number) row[2]).longValue());
+            entries.add(entry);
+            idsByName.put(entry.getCategoryName(), entry.getCategoryId());
+            if (entry.getProductCount() > 0) {
+                namesWithProducts.add(entry.getCategoryName());
+            }
+        }
+        return new Catalog(List.copyOf(entries), List.copyOf(namesWithProducts), Map.copyOf(idsByName));
+    }
+    
+    private static final class Catalog {
+        private final List<CategoryEntry> entries;
+        private final List<String> namesWithProducts;
+        private final Map<String, Integer> idsByName;
+        
+        private Catalog(List<CategoryEntry> entries, List<String> namesWithProducts, Map<String, Integer> idsByName) {
+            this.entries = entries;
+            this.namesWithProducts = namesWithProducts;
+            this.idsByName = idsByName;
+        }
+    }
+    
+    public static class CategoryEntry {
+        private final Integer categoryId;
+        private final String categoryName;
+        private final long productCount;
+        
+        public CategoryEntry(Integer categoryId, String categoryName, long productCount) {
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+            this.productCount = productCount;
+        }
+        
+        public Integer getCategoryId() { return categoryId; }
+        public String getCategoryName() { return categoryName; }
+        public long getProductCount() { return productCount; }
+    }
+}
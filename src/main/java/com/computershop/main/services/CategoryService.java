@@ -14,6 +14,12 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private CategoryCatalogCache categoryCatalogCache;
+    
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+    
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
@@ -38,7 +44,10 @@ public class CategoryService {
         if (categoryRepository.existsByCategoryName(category.getCategoryName())) {
             throw new RuntimeException("Category with name '" + category.getCategoryName() + "' already exists");
         }
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        categoryCatalogCache.invalidate();
+        catalogSnapshotService.requestRebuild();
+        return saved;
     }
     
     public Category updateCategory(Integer categoryId, Category category) {
@@ -57,7 +66,10 @@ public class CategoryService {
         existingCategory.setCategoryName(category.getCategoryName());
         existingCategory.setDescription(category.getDescription());
         
-        return categoryRepository.save(existingCategory);
+        Category saved = categoryRepository.save(existingCategory);
+        categoryCatalogCache.invalidate();
+        catalogSnapshotService.requestRebuild();
+        return saved;
     }
     
     public void deleteCategory(Integer categoryId) {
@@ -73,6 +85,8 @@ public class CategoryService {
         }
         
         categoryRepository.deleteById(categoryId);
+        categoryCatalogCache.invalidate();
+        catalogSnapshotService.requestRebuild();
     }
     
     public List<String> getAllCategoryNames() {
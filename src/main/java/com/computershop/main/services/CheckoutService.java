@@ -0,0 +1,173 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Order;
+import com.computershop.main.entities.Product;
+import com.computershop.main.entities.User;
+import com.computershop.main.repositories.OrderRepository;
+import com.computershop.main.repositories.ProductRepository;
+import com.computershop.main.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class CheckoutService {
+    
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE product_id = ? AND stock_quantity >= ?";
+    
+    private static final String INSERT_ORDER_DETAIL_SQL =
+            "INSERT INTO order_details (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private SalesSummaryService salesSummaryService;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private CatalogFacetIndex catalogFacetIndex;
+    
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    
+    @Autowired
+    private BestSellerRanking bestSellerRanking;
+    
+    @Autowired
+    private CoPurchaseIndex coPurchaseIndex;
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Transactional
+    public Order placeOrder(Integer userId, List<CheckoutItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new CheckoutException(List.of("Cart is empty"));
+        }
+        
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+        
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (CheckoutItem item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity() != null ? item.getQuantity() : 0, Integer::sum);
+        }
+        
+        Map<Integer, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        
+        List<String> errors = new ArrayList<>();
+        List<Object[]> stockUpdates = new ArrayList<>();
+        List<Object[]> detailRows = new ArrayList<>();
+        
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            Product product = products.get(line.getKey());
+            int quantity = line.getValue();
+            // stock held by other customers' checkouts is not ours to sell
+            int available = product != null
+                    ? product.getStockQuantity() - inventoryReservationService.getHeldByOthers(userId, line.getKey()) : 0;
+            
+            if (product == null) {
+                errors.add("Product not found with id: " + line.getKey());
+            } else if (quantity <= 0) {
+                errors.add("Invalid quantity for product: " + product.getProductName());
+            } else if (available < quantity) {
+                errors.add("Insufficient stock for product: " + product.getProductName() +
+                        ". Available: " + Math.max(available, 0) + ", Requested: " + quantity);
+            } else {
+                stockUpdates.add(new Object[] { quantity, product.getProductId(), quantity });
+                detailRows.add(new Object[] { product.getProductId(), quantity, product.getPrice() });
+            }
+        }
+        
+        if (!errors.isEmpty()) {
+            throw new CheckoutException(errors);
+        }
+        
+        Order order = orderRepository.save(new Order(user, LocalDateTime.now()));
+        
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, stockUpdates);
+        quantities.keySet().forEach(productCache::evict);
+        for (Object[] row : stockUpdates) {
+            catalogFacetIndex.adjustStock((Integer) row[1], -(Integer) row[0]);
+            productSuggestIndex.recordSale((Integer) row[1], (Integer) row[0]);
+            bestSellerRanking.recordSale((Integer) row[1], (Integer) row[0]);
+        }
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Product product = products.get((Integer) stockUpdates.get(i)[1]);
+                errors.add("Insufficient stock for product: " + product.getProductName());
+            }
+        }
+        
+        if (!errors.isEmpty()) {
+            throw new CheckoutException(errors);
+        }
+        
+        List<Object[]> inserts = new ArrayList<>(detailRows.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Object[] row : detailRows) {
+            inserts.add(new Object[] { order.getOrderId(), row[0], row[1], row[2] });
+            total = total.add(((BigDecimal) row[2]).multiply(BigDecimal.valueOf((Integer) row[1])));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_DETAIL_SQL, inserts);
+
+        salesSummaryService.recordOrderPlaced(order.getStatus(), total);
+        coPurchaseIndex.recordOrder(order.getOrderId(), quantities.keySet());
+        inventoryReservationService.confirm(userId);
+        
+        return order;
+    }
+    
+    public static class CheckoutItem {
+        private Integer productId;
+        private Integer quantity;
+        
+        public CheckoutItem() {}
+        
+        public CheckoutItem(Integer productId, Integer quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+        
+        public Integer getProductId() { return productId; }
+        public void setProductId(Integer productId) { this.productId = productId; }
+        
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    }
+    
+    public static class CheckoutException extends RuntimeException {
+        private final List<String> lineErrors;
+        
+        public CheckoutException(List<String> lineErrors) {
+            super(String.join("; ", lineErrors));
+            this.lineErrors = List.copyOf(lineErrors);
+        }
+        
+        public List<String> getLineErrors() { return lineErrors; }
+    }
+}
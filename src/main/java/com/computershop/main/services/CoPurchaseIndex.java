@@ -0,0 +1,339 @@
+package com.computershop.main.services;
+
+import com.computershop.main.repositories.OrderDetailRepository;
+import com.computershop.main.repositories.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Frequently-bought-together model: how often each pair of products shared an order, in an
+ * open-addressing long-to-int map, and each product's strongest neighbours in flat int arrays.
+ * A background job rebuilds it from order_details; placed orders update it after commit, and
+ * orders placed while a rebuild runs are replayed onto the new model.
+ */
+@Service
+public class CoPurchaseIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(CoPurchaseIndex.class);
+    
+    public static final int TOP_NEIGHBOURS = 8;
+    private static final int REBUILD_ORDER_BATCH = 10_000;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private OrderDetailRepository orderDetailRepository;
+    
+    @Value("${computershop.co-purchase.rebuild-interval-hours:24}")
+    private long rebuildIntervalHours;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> ordersDuringRebuild = new LinkedHashMap<>();
+    private Model model = new Model();
+    private boolean rebuilding;
+    private ScheduledExecutorService scheduler;
+    
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "co-purchase-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuilds() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Co-purchase rebuild failed, keeping the current model", e);
+            }
+        }, 0, rebuildIntervalHours, TimeUnit.HOURS);
+    }
+    
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            ordersDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        Model next = new Model();
+        int lastOrderId = 0;
+        try {
+            Integer maxOrderId = orderRepository.findMaxOrderId();
+            lastOrderId = maxOrderId != null ? maxOrderId : 0;
+            for (int from = 0; from < lastOrderId; from += REBUILD_ORDER_BATCH) {
+                List<Object[]> rows = orderDetailRepository.findOrderProducts(from, Math.min(from + REBUILD_ORDER_BATCH, lastOrderId));
+                int currentOrder = -1;
+                Set<Integer> basket = new HashSet<>();
+                for (Object[] row : rows) {
+                    int orderId = (Integer) row[0];
+                    if (orderId != currentOrder) {
+                        next.addOrder(basket);
+                        basket.clear();
+                        currentOrder = orderId;
+                    }
+                    basket.add((Integer) row[1]);
+                }
+                next.addOrder(basket);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                ordersDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, int[]> order : ordersDuringRebuild.entrySet()) {
+                if (order.getKey() > lastOrderId) {
+                    next.addOrder(order.getValue());
+                }
+            }
+            ordersDuringRebuild.clear();
+            rebuilding = false;
+            model = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Counts the products of a placed order as bought together, after commit when called
+     * inside a transaction.
+     */
+    public void recordOrder(Integer orderId, Collection<Integer> productIds) {
+        int[] basket = productIds.stream().distinct().mapToInt(Integer::intValue).toArray();
+        if (basket.length < 2) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyOrder(orderId, basket);
+                }
+            });
+        } else {
+            applyOrder(orderId, basket);
+        }
+    }
+    
+    /**
+     * Up to {@code limit} products most often bought with the given one, strongest first.
+     */
+    public List<Integer> neighbours(Integer productId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Integer> result = new ArrayList<>(Math.min(limit, TOP_NEIGHBOURS));
+            if (productId == null || productId < 0) {
+                return result;
+            }
+            int base = productId * TOP_NEIGHBOURS;
+            for (int i = 0; i < TOP_NEIGHBOURS && result.size() < limit && base + i < model.neighbourIds.length; i++) {
+                if (model.neighbourCounts[base + i] == 0) {
+                    break;
+                }
+                result.add(model.neighbourIds[base + i]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Products most often bought with anything in the basket, excluding the basket itself,
+     * scored by the summed pair counts of each basket item's neighbours.
+     */
+    public List<Integer> neighboursOfBasket(Collection<Integer> productIds, int limit) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Integer productId : productIds) {
+                if (productId == null || productId < 0) {
+                    continue;
+                }
+                int base = productId * TOP_NEIGHBOURS;
+                for (int i = 0; i < TOP_NEIGHBOURS && base + i < model.neighbourIds.length; i++) {
+                    int count = model.neighbourCounts[base + i];
+                    if (count == 0) {
+                        break;
+                    }
+                    scores.merge(model.neighbourIds[base + i], count, Integer::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        productIds.forEach(scores::remove);
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+    
+    private void applyOrder(Integer orderId, int[] basket) {
+        lock.writeLock().lock();
+        try {
+            model.addOrder(basket);
+            if (rebuilding && orderId != null) {
+                ordersDuringRebuild.put(orderId, basket);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static final class Model {
+        private final PairCounts pairs = new PairCounts();
+        private int[] neighbourIds = new int[0];
+        private int[] neighbourCounts = new int[0];
+        
+        private void addOrder(Collection<Integer> basket) {
+            if (basket.size() > 1) {
+                addOrder(basket.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        
+        private void addOrder(int[] basket) {
+            for (int i = 0; i < basket.length; i++) {
+                for (int j = i + 1; j < basket.length; j++) {
+                    int a = Math.min(basket[i], basket[j]);
+                    int b = Math.max(basket[i], basket[j]);
+                    if (a == b) {
+                        continue;
+                    }
+                    int count = pairs.increment(((long) a << 32) | b);
+                    offer(a, b, count);
+                    offer(b, a, count);
+                }
+            }
+        }
+        
+        /** Keeps product's neighbour slots sorted by count desc, then id asc. */
+        private void offer(int productId, int neighbourId, int count) {
+            int base = productId * TOP_NEIGHBOURS;
+            if (base + TOP_NEIGHBOURS > neighbourIds.length) {
+                int length = Math.max(neighbourIds.length * 2, base + TOP_NEIGHBOURS);
+                neighbourIds = Arrays.copyOf(neighbourIds, length);
+                neighbourCounts = Arrays.copyOf(neighbourCounts, length);
+            }
+            int position = TOP_NEIGHBOURS - 1;
+            for (int i = 0; i < TOP_NEIGHBOURS; i++) {
+                if (neighbourCounts[base + i] == 0 || neighbourIds[base + i] == neighbourId) {
+                    position = i;
+                    break;
+                }
+            }
+            if (neighbourCounts[base + position] != 0 && neighbourIds[base + position] != neighbourId
+                    && !ranksBefore(count, neighbourId, neighbourCounts[base + position], neighbourIds[base + position])) {
+                return;
+            }
+            while (position > 0 && ranksBefore(count, neighbourId,
+                    neighbourCounts[base + position - 1], neighbourIds[base + position - 1])) {
+                neighbourIds[base + position] = neighbourIds[base + position - 1];
+                neighbourCounts[base + position] = neighbourCounts[base + position - 1];
+                position--;
+            }
+            neighbourIds[base + position] = neighbourId;
+            neighbourCounts[base + position] = count;
+        }
+        
+        private static boolean ranksBefore(int count, int id, int otherCount, int otherId) {
+            return count > otherCount || (count == otherCount && id < otherId);
+        }
+    }
+    
+    /**
+     * Open-addressing hash map from a packed product pair to its count, with linear probing and
+     * no boxing.
+     */
+    private static final class PairCounts {
+        private static final long EMPTY = 0L;
+        
+        private long[] keys = new long[1024];
+        private int[] counts = new int[1024];
+        private int size;
+        
+        private int increment(long key) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            }
+            return ++counts[slot];
+        }
+        
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+        
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Order;
+import com.computershop.main.entities.Product;
+import com.computershop.main.entities.User;
+import com.computershop.main.repositories.CategoryRepository;
+import com.computershop.main.repositories.OrderRepository;
+import com.computershop.main.repositories.ProductRepository;
+import com.computershop.main.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the admin dashboard figures in parallel and shares the result for a few seconds,
+ * so concurrent refreshes trigger a single round of queries.
+ */
+@Service
+public class DashboardSnapshotService {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private SalesSummaryService salesSummaryService;
+    
+    @Value("${computershop.dashboard.snapshot-ttl-ms:5000}")
+    private long snapshotTtlMillis;
+    
+    @Value("${computershop.dashboard.threads:4}")
+    private int threads;
+    
+    private final Object refreshLock = new Object();
+    private volatile DashboardSnapshot snapshot;
+    private ExecutorService executor;
+    
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(32),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
+    public DashboardSnapshot getSnapshot() {
+        DashboardSnapshot current = snapshot;
+        if (isFresh(current)) {
+            return current;
+        }
+        synchronized (refreshLock) {
+            current = snapshot;
+            if (isFresh(current)) {
+                return current;
+            }
+            current = compute();
+            snapshot = current;
+            return current;
+        }
+    }
+    
+    public void invalidate() {
+        snapshot = null;
+    }
+    
+    private boolean isFresh(DashboardSnapshot current) {
+        return current != null && System.currentTimeMillis() - current.getCreatedAt() < snapshotTtlMillis;
+    }
+    
+    private DashboardSnapshot compute() {
+        CompletableFuture<Long> users = CompletableFuture.supplyAsync(userRepository::count, executor);
+        CompletableFuture<Long> products = CompletableFuture.supplyAsync(productRepository::count, executor);
+        CompletableFuture<Long> categories = CompletableFuture.supplyAsync(categoryRepository::count, executor);
+        CompletableFuture<SalesSummaryService.SalesTotals> sales =
+                CompletableFuture.supplyAsync(salesSummaryService::getTotals, executor);
+        CompletableFuture<List<Order>> recentOrders = CompletableFuture.supplyAsync(
+                () -> orderRepository.findRecentOrdersWithUser(PageRequest.of(0, 10)), executor);
+        CompletableFuture<List<Product>> lowStock = CompletableFuture.supplyAsync(
+                () -> productRepository.findLowStockProductsWithCategory(PageRequest.of(0, 10)), executor);
+        CompletableFuture<List<User>> recentUsers = CompletableFuture.supplyAsync(
+                () -> userRepository.findRecentUsersWithRole(PageRequest.of(0, 5)), executor);
+        
+        CompletableFuture.allOf(users, products, categories, sales, recentOrders, lowStock, recentUsers).join();
+        
+        return new DashboardSnapshot(System.currentTimeMillis(),
+                users.join(), products.join(), categories.join(),
+                sales.join().getOrderCount(), sales.join().getTotalRevenue(),
+                recentOrders.join(), lowStock.join(), recentUsers.join());
+    }
+    
+    public static class DashboardSnapshot {
+        private final long createdAt;
+        private final long totalUsers;
+        private final long totalProducts;
+        private final long totalCategories;
+        private final long totalOrders;
+        private final BigDecimal totalRevenue;
+        private final List<Order> recentOrders;
+        private final List<Product> lowStockProducts;
+        private final List<User> recentUsers;
+        
+        public DashboardSnapshot(long createdAt, long totalUsers, long totalProducts, long totalCategories,
+                                 long totalOrders, BigDecimal totalRevenue, List<Order> recentOrders,
+                                 List<Product> lowStockProducts, List<User> recentUsers) {
+            this.createdAt = createdAt;
+            this.totalUsers = totalUsers;
+            this.totalProducts = totalProducts;
+            this.totalCategories = totalCategories;
+            this.totalOrders = totalOrders;
+            this.totalRevenue = totalRevenue;
+            this.recentOrders = List.copyOf(recentOrders);
+            this.lowStockProducts = List.copyOf(lowStockProducts);
+            this.recentUsers = List.copyOf(recentUsers);
+        }
+        
+        public long getCreatedAt() { return createdAt; }
+        public long getTotalUsers() { return totalUsers; }
+        public long getTotalProducts() { return totalProducts; }
+        public long getTotalCategories() { return totalCategories; }
+        public long getTotalOrders() { return totalOrders; }
+        public BigDecimal getTotalRevenue() { return totalRevenue; }
+        public List<Order> getRecentOrders() { return recentOrders; }
+        public List<Product> getLowStockProducts() { return lowStockProducts; }
+        public List<User> getRecentUsers() { return recentUsers; }
+    }
+}
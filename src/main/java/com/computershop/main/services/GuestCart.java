@@ -0,0 +1,91 @@
+package com.computershop.main.services;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Cart of a visitor who has not logged in, kept in the HTTP session. Only product ids and
+ * quantities are held, in two parallel int arrays, so the session stays small and replicates as
+ * a few dozen bytes; names and prices are resolved from the product cache when the cart is shown.
+ * Not thread-safe: callers mutate it under the session and re-set the attribute afterwards.
+ */
+public final class GuestCart implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public static final String SESSION_ATTRIBUTE = "guestCart";
+    
+    private int[] productIds = new int[4];
+    private int[] quantities = new int[4];
+    private int size;
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int productIdAt(int index) {
+        return productIds[index];
+    }
+    
+    public int quantityAt(int index) {
+        return quantities[index];
+    }
+    
+    public int quantityOf(int productId) {
+        int index = indexOf(productId);
+        return index >= 0 ? quantities[index] : 0;
+    }
+    
+    public int itemCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += quantities[i];
+        }
+        return count;
+    }
+    
+    public void add(int productId, int quantity) {
+        set(productId, quantityOf(productId) + quantity);
+    }
+    
+    /**
+     * Sets the line's quantity; zero or less removes the line. New lines go to the end.
+     */
+    public void set(int productId, int quantity) {
+        int index = indexOf(productId);
+        if (quantity <= 0) {
+            if (index >= 0) {
+                System.arraycopy(productIds, index + 1, productIds, index, size - index - 1);
+                System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+                size--;
+            }
+            return;
+        }
+        if (index < 0) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                quantities = Arrays.copyOf(quantities, size * 2);
+            }
+            index = size++;
+            productIds[index] = productId;
+        }
+        quantities[index] = quantity;
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    private int indexOf(int productId) {
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
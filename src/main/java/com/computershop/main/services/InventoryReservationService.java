@@ -0,0 +1,318 @@
+package com.computershop.main.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Time-limited stock holds taken when a customer starts checkout. Each user has at most one hold,
+ * covering the whole cart; taking a new one replaces the old one atomically. Held quantities per
+ * product are guarded by striped locks, so availability (committed stock minus everyone's holds)
+ * is answered from memory, and holds are expired by a hashed timer wheel that only visits the
+ * slot of the current tick. A hold is released when its order commits, since the order's own
+ * stock decrement takes over from there.
+ */
+@Service
+public class InventoryReservationService {
+    
+    private static final Logger log = LoggerFactory.getLogger(InventoryReservationService.class);
+    
+    private static final int STRIPES = 64;
+    private static final int WHEEL_SLOTS = 512;
+    
+    @Autowired
+    private CatalogFacetIndex catalogFacetIndex;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Value("${computershop.reservation.hold-ttl-seconds:600}")
+    private long holdTtlSeconds;
+    
+    @Value("${computershop.reservation.tick-ms:1000}")
+    private long tickMs;
+    
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Map<Integer, Integer> held = new ConcurrentHashMap<>();
+    private final Map<Integer, Hold> holdsByUser = new ConcurrentHashMap<>();
+    
+    @SuppressWarnings("unchecked")
+    private final List<Hold>[] wheel = new List[WHEEL_SLOTS];
+    private long lastTick;
+    private ScheduledExecutorService scheduler;
+    
+    public InventoryReservationService() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        lastTick = System.currentTimeMillis() / tickMs;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                advance(System.currentTimeMillis() / tickMs);
+            } catch (RuntimeException e) {
+                log.warn("Reservation expiry tick failed", e);
+            }
+        }, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Stock that can still be promised: committed stock minus all active holds.
+     */
+    public int getAvailable(Integer productId) {
+        return Math.max(getStock(productId) - held.getOrDefault(productId, 0), 0);
+    }
+    
+    /**
+     * Quantity of the product held by users other than this one, for validating that user's order.
+     */
+    public int getHeldByOthers(Integer userId, Integer productId) {
+        Hold own = holdsByUser.get(userId);
+        return held.getOrDefault(productId, 0) - (own != null ? own.quantityOf(productId) : 0);
+    }
+    
+    /**
+     * Holds the given quantities for the user until the TTL runs out, replacing any hold the user
+     * already had. All lines are granted or none; the user's previous hold counts as available to
+     * the new one.
+     *
+     * @throws CheckoutService.CheckoutException listing every line that cannot be held
+     */
+    public void reserve(Integer userId, Map<Integer, Integer> quantities) {
+        int[] productIds = new int[quantities.size()];
+        int[] amounts = new int[quantities.size()];
+        int n = 0;
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            if (line.getValue() != null && line.getValue() > 0) {
+                productIds[n] = line.getKey();
+                amounts[n++] = line.getValue();
+            }
+        }
+        Hold hold = new Hold(userId, Arrays.copyOf(productIds, n), Arrays.copyOf(amounts, n),
+                (System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(holdTtlSeconds)) / tickMs);
+        
+        while (true) {
+            Hold previous = holdsByUser.get(userId);
+            int[] locked = lockStripes(hold, previous);
+            try {
+                if (holdsByUser.get(userId) != previous) {
+                    continue;
+                }
+                List<String> errors = new ArrayList<>();
+                for (int i = 0; i < hold.productIds.length; i++) {
+                    int productId = hold.productIds[i];
+                    int ownPrevious = previous != null ? previous.quantityOf(productId) : 0;
+                    int available = getStock(productId) - held.getOrDefault(productId, 0) + ownPrevious;
+                    if (available < hold.quantities[i]) {
+                        errors.add("Insufficient stock for product id " + productId +
+                                ". Available: " + Math.max(available, 0) + ", Requested: " + hold.quantities[i]);
+                    }
+                }
+                if (!errors.isEmpty()) {
+                    throw new CheckoutService.CheckoutException(errors);
+                }
+                
+                if (previous != null) {
+                    releaseLocked(previous);
+                }
+                for (int i = 0; i < hold.productIds.length; i++) {
+                    held.merge(hold.productIds[i], hold.quantities[i], Integer::sum);
+                }
+                holdsByUser.put(userId, hold);
+            } finally {
+                unlockStripes(locked);
+            }
+            schedule(hold);
+            return;
+        }
+    }
+    
+    /**
+     * Drops the user's hold, if any.
+     */
+    public void release(Integer userId) {
+        Hold hold = holdsByUser.get(userId);
+        if (hold != null) {
+            releaseHold(hold);
+        }
+    }
+    
+    /**
+     * Converts the user's hold at order commit: the order's stock decrement replaces it, so it is
+     * released once the surrounding transaction commits. A rolled-back order keeps its hold until
+     * it expires or checkout is retried.
+     */
+    public void confirm(Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(userId);
+                }
+            });
+        } else {
+            release(userId);
+        }
+    }
+    
+    public int getActiveHoldCount() {
+        return holdsByUser.size();
+    }
+    
+    private void releaseHold(Hold hold) {
+        int[] locked = lockStripes(hold, null);
+        try {
+            releaseLocked(hold);
+        } finally {
+            unlockStripes(locked);
+        }
+    }
+    
+    // caller holds the stripes of every product in the hold
+    private void releaseLocked(Hold hold) {
+        if (hold.released) {
+            return;
+        }
+        hold.released = true;
+        for (int i = 0; i < hold.productIds.length; i++) {
+            int amount = hold.quantities[i];
+            held.computeIfPresent(hold.productIds[i], (id, quantity) -> quantity > amount ? quantity - amount : null);
+        }
+        holdsByUser.remove(hold.userId, hold);
+    }
+    
+    private int getStock(int productId) {
+        int stock = catalogFacetIndex.getStock(productId);
+        if (stock >= 0) {
+            return stock;
+        }
+        return productService.getProductView(productId).map(ProductCache.ProductView::getStockQuantity).orElse(0);
+    }
+    
+    private void schedule(Hold hold) {
+        synchronized (wheel) {
+            wheel[(int) (hold.deadlineTick & (WHEEL_SLOTS - 1))].add(hold);
+        }
+    }
+    
+    /**
+     * Visits every slot passed since the last tick. Holds whose deadline is further than one turn
+     * of the wheel away stay in their slot for a later round.
+     */
+    private void advance(long nowTick) {
+        List<Hold> expired = new ArrayList<>();
+        synchronized (wheel) {
+            long from = Math.max(lastTick + 1, nowTick - WHEEL_SLOTS + 1);
+            for (long tick = from; tick <= nowTick; tick++) {
+                wheel[(int) (tick & (WHEEL_SLOTS - 1))].removeIf(hold -> {
+                    if (hold.released) {
+                        return true;
+                    }
+                    if (hold.deadlineTick <= nowTick) {
+                        expired.add(hold);
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            lastTick = nowTick;
+        }
+        for (Hold hold : expired) {
+            releaseHold(hold);
+        }
+    }
+    
+    /**
+     * Locks the stripes covering both holds in ascending index order, so two reservations over
+     * overlapping products can never deadlock. Returns the locked stripe indexes.
+     */
+    private int[] lockStripes(Hold hold, Hold other) {
+        int[] indexes = new int[hold.productIds.length + (other != null ? other.productIds.length : 0)];
+        int n = 0;
+        for (int productId : hold.productIds) {
+            indexes[n++] = stripeOf(productId);
+        }
+        if (other != null) {
+            for (int productId : other.productIds) {
+                indexes[n++] = stripeOf(productId);
+            }
+        }
+        int[] distinct = Arrays.stream(indexes).distinct().sorted().toArray();
+        for (int index : distinct) {
+            stripes[index].lock();
+        }
+        return distinct;
+    }
+    
+    private void unlockStripes(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+    
+    private static int stripeOf(int productId) {
+        int h = productId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+    
+    private static final class Hold {
+        private final Integer userId;
+        private final int[] productIds;
+        private final int[] quantities;
+        private final long deadlineTick;
+        private volatile boolean released;
+        
+        private Hold(Integer userId, int[] productIds, int[] quantities, long deadlineTick) {
+            this.userId = userId;
+            this.productIds = productIds;
+            this.quantities = quantities;
+            this.deadlineTick = deadlineTick;
+        }
+        
+        private int indexOf(int productId) {
+            for (int i = 0; i < productIds.length; i++) {
+                if (productIds[i] == productId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        private int quantityOf(int productId) {
+            int index = indexOf(productId);
+            return index >= 0 && !released ? quantities[index] : 0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.computershop.main.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Product ids presorted by the vi-VN collation keys in {@link ProductStore}. The permutation is
+ * sorted once at startup and kept in order on create and rename, so a name-sorted page is a walk
+ * over the array filtered by the matched ids.
+ */
+@Component
+public class NameOrderIndex {
+    
+    @Autowired
+    private ProductStore productStore;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] productIds = new int[0];
+    private int size;
+    
+    public void load(int[] ids, int count) {
+        int[] sorted = Arrays.copyOf(ids, count);
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int lo = 0; lo < count - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, count);
+                System.arraycopy(sorted, lo, buffer, lo, hi - lo);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (i < mid && (j >= hi || productStore.compareNames(buffer[i], buffer[j]) <= 0)) {
+                        sorted[k] = buffer[i++];
+                    } else {
+                        sorted[k] = buffer[j++];
+                    }
+                }
+            }
+        }
+        
+        lock.writeLock().lock();
+        try {
+            productIds = sorted;
+            size = count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Moves the product to its place for the name currently in the store.
+     */
+    public void put(int productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, Math.max(16, size * 2));
+            }
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (productStore.compareNames(productIds[mid], productId) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            System.arraycopy(productIds, low, productIds, low + 1, size - low);
+            productIds[low] = productId;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public List<Integer> page(BitSet filter, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Integer> page = new ArrayList<>(Math.max(Math.min(limit, filter.cardinality() - offset), 0));
+            int skipped = 0;
+            for (int i = 0; i < size && page.size() < limit; i++) {
+                if (filter.get(productIds[i]) && skipped++ >= offset) {
+                    page.add(productIds[i]);
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void removeLocked(int productId) {
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                System.arraycopy(productIds, i + 1, productIds, i, size - i - 1);
+                size--;
+                return;
+            }
+        }
+    }
+}
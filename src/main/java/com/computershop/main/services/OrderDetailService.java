@@ -6,6 +6,7 @@ import com.computershop.main.entities.Product;
 import com.computershop.main.repositories.OrderDetailRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -20,6 +21,9 @@ public class OrderDetailService {
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private SalesSummaryService salesSummaryService;
+    
     public List<OrderDetail> getAllOrderDetails() {
         return orderDetailRepository.findAll();
     }
@@ -52,24 +56,20 @@ public class OrderDetailService {
         return orderDetailRepository.findByPriceBetween(minPrice, maxPrice);
     }
     
+    @Transactional
     public OrderDetail createOrderDetail(OrderDetail orderDetail) {
         
         Product product = orderDetail.getProduct();
-        if (!productService.hasSufficientStock(product.getProductId(), orderDetail.getQuantity())) {
-            throw new RuntimeException("Insufficient stock for product: " + product.getProductName());
-        }
-        
         productService.decreaseStock(product.getProductId(), orderDetail.getQuantity());
         
-        return orderDetailRepository.save(orderDetail);
+        OrderDetail saved = orderDetailRepository.save(orderDetail);
+        salesSummaryService.recordRevenueChange(saved.getOrder().getStatus(), lineTotal(saved.getPrice(), saved.getQuantity()));
+        return saved;
     }
     
+    @Transactional
     public OrderDetail createOrderDetail(Order order, Product product, Integer quantity, BigDecimal price) {
         
-        if (!productService.hasSufficientStock(product.getProductId(), quantity)) {
-            throw new RuntimeException("Insufficient stock for product: " + product.getProductName());
-        }
-        
         OrderDetail orderDetail = new OrderDetail();
         orderDetail.setOrder(order);
         orderDetail.setProduct(product);
@@ -78,9 +78,12 @@ public class OrderDetailService {
         
         productService.decreaseStock(product.getProductId(), quantity);
         
-        return orderDetailRepository.save(orderDetail);
+        OrderDetail saved = orderDetailRepository.save(orderDetail);
+        salesSummaryService.recordRevenueChange(order.getStatus(), lineTotal(price, quantity));
+        return saved;
     }
     
+    @Transactional
     public OrderDetail updateOrderDetail(Integer orderDetailId, OrderDetail orderDetailDetails) {
         OrderDetail orderDetail = orderDetailRepository.findById(orderDetailId)
                 .orElseThrow(() -> new RuntimeException("Order detail not found with id: " + orderDetailId));
@@ -93,10 +96,6 @@ public class OrderDetailService {
             Integer quantityDifference = newQuantity - oldQuantity;
             
             if (quantityDifference > 0) {
-                
-                if (!productService.hasSufficientStock(product.getProductId(), quantityDifference)) {
-                    throw new RuntimeException("Insufficient stock for product: " + product.getProductName());
-                }
                 productService.decreaseStock(product.getProductId(), quantityDifference);
             } else {
                 
@@ -104,12 +103,17 @@ public class OrderDetailService {
             }
         }
         
+        BigDecimal oldTotal = lineTotal(orderDetail.getPrice(), orderDetail.getQuantity());
         orderDetail.setQuantity(orderDetailDetails.getQuantity());
         orderDetail.setPrice(orderDetailDetails.getPrice());
         
-        return orderDetailRepository.save(orderDetail);
+        OrderDetail saved = orderDetailRepository.save(orderDetail);
+        salesSummaryService.recordRevenueChange(saved.getOrder().getStatus(),
+                lineTotal(saved.getPrice(), saved.getQuantity()).subtract(oldTotal));
+        return saved;
     }
     
+    @Transactional
     public void deleteOrderDetail(Integer orderDetailId) {
         OrderDetail orderDetail = orderDetailRepository.findById(orderDetailId)
                 .orElseThrow(() -> new RuntimeException("Order detail not found with id: " + orderDetailId));
@@ -117,6 +121,15 @@ public class OrderDetailService {
         productService.increaseStock(orderDetail.getProduct().getProductId(), orderDetail.getQuantity());
         
         orderDetailRepository.deleteById(orderDetailId);
+        salesSummaryService.recordRevenueChange(orderDetail.getOrder().getStatus(),
+                lineTotal(orderDetail.getPrice(), orderDetail.getQuantity()).negate());
+    }
+    
+    private BigDecimal lineTotal(BigDecimal price, Integer quantity) {
+        if (price == null || quantity == null) {
+            return BigDecimal.ZERO;
+        }
+        return price.multiply(BigDecimal.valueOf(quantity));
     }
     
     public BigDecimal calculateTotalRevenueByProduct(Integer productId) {
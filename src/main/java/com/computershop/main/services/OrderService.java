@@ -8,14 +8,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class OrderService {
     
+    private static final Set<String> ORDER_STATUSES = Set.of("pending", "confirmed", "shipping", "completed", "cancelled");
+    
     @Autowired
     private OrderRepository orderRepository;
     
@@ -25,6 +30,9 @@ public class OrderService {
     @Autowired
     private OrderDetailService orderDetailService;
     
+    @Autowired
+    private SalesSummaryService salesSummaryService;
+    
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
@@ -65,13 +73,17 @@ public class OrderService {
         return orderRepository.findRecentOrders(thirtyDaysAgo);
     }
     
+    @Transactional
     public Order createOrder(Order order) {
         if (order.getOrderDate() == null) {
             order.setOrderDate(LocalDateTime.now());
         }
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        salesSummaryService.recordOrderPlaced(saved.getStatus(), BigDecimal.valueOf(saved.getTotalAmount()));
+        return saved;
     }
     
+    @Transactional
     public Order createOrderForUser(Integer userId) {
         User user = userService.getUserById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
@@ -80,7 +92,9 @@ public class OrderService {
         order.setUser(user);
         order.setOrderDate(LocalDateTime.now());
         
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        salesSummaryService.recordOrderPlaced(saved.getStatus(), BigDecimal.ZERO);
+        return saved;
     }
     
     public Order updateOrder(Integer orderId, Order orderDetails) {
@@ -97,11 +111,31 @@ public class OrderService {
         return orderRepository.save(order);
     }
     
-    public void deleteOrder(Integer orderId) {
-        if (!orderRepository.existsById(orderId)) {
-            throw new RuntimeException("Order not found with id: " + orderId);
+    @Transactional
+    public Order updateOrderStatus(Integer orderId, String status) {
+        if (status == null || !ORDER_STATUSES.contains(status)) {
+            throw new RuntimeException("Invalid order status: " + status);
         }
-        orderRepository.deleteById(orderId);
+        
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        
+        String oldStatus = order.getStatus();
+        order.setStatus(status);
+        Order saved = orderRepository.save(order);
+        
+        salesSummaryService.recordStatusChange(oldStatus, status, orderDetailService.calculateOrderTotal(orderId));
+        return saved;
+    }
+    
+    @Transactional
+    public void deleteOrder(Integer orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        
+        BigDecimal total = orderDetailService.calculateOrderTotal(orderId);
+        orderRepository.delete(order);
+        salesSummaryService.recordOrderRemoved(order.getStatus(), total);
     }
     
     public long countOrdersByUser(User user) {
@@ -161,24 +195,25 @@ public class OrderService {
     }
     
     public long getTotalOrders() {
-        return orderRepository.count();
+        return salesSummaryService.getTotals().getOrderCount();
     }
     
     public double getTotalRevenue() {
         try {
-            List<Order> orders = orderRepository.findAll();
-            return orders.stream()
-                    .mapToDouble(order -> {
-                        return order.getOrderDetails().stream()
-                                .mapToDouble(detail -> detail.getPrice().doubleValue() * detail.getQuantity())
-                                .sum();
-                    })
-                    .sum();
+            return salesSummaryService.getTotals().getTotalRevenue().doubleValue();
         } catch (Exception e) {
             return 0.0;
         }
     }
     
+    public SalesSummaryService.SalesTotals getSalesTotals() {
+        return salesSummaryService.getTotals();
+    }
+    
+    public void rebuildSalesSummary() {
+        salesSummaryService.rebuild();
+    }
+    
     public List<Order> getRecentOrders(int limit) {
         Pageable pageable = PageRequest.of(0, limit);
         return orderRepository.findRecentOrdersForAdmin(pageable);
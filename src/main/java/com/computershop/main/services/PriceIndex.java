@@ -0,0 +1,232 @@
+package com.computershop.main.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Product ids kept in price order as parallel primitive arrays, ties broken by id. Price ranges
+ * are two binary searches and price-sorted pages are a walk over the arrays, so neither needs a
+ * sort or any BigDecimal arithmetic per request.
+ */
+@Component
+public class PriceIndex {
+    
+    private static final long ABSENT = Long.MIN_VALUE;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] priceCents = new long[0];
+    private int[] productIds = new int[0];
+    private long[] priceById = new long[0];
+    private int size;
+    
+    /**
+     * Replaces the whole index, sorting the given pairs once.
+     */
+    public void load(int[] ids, long[] prices, int count) {
+        int[] sortedIds = Arrays.copyOf(ids, count);
+        long[] sortedPrices = Arrays.copyOf(prices, count);
+        sort(sortedPrices, sortedIds);
+        
+        int maxId = 0;
+        for (int i = 0; i < count; i++) {
+            maxId = Math.max(maxId, sortedIds[i]);
+        }
+        long[] byId = new long[maxId + 1];
+        Arrays.fill(byId, ABSENT);
+        for (int i = 0; i < count; i++) {
+            byId[sortedIds[i]] = sortedPrices[i];
+        }
+        
+        lock.writeLock().lock();
+        try {
+            priceCents = sortedPrices;
+            productIds = sortedIds;
+            priceById = byId;
+            size = count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void put(int productId, long cents) {
+        lock.writeLock().lock();
+        try {
+            if (productId < priceById.length && priceById[productId] == cents) {
+                return;
+            }
+            removeLocked(productId);
+            if (size == productIds.length) {
+                int capacity = Math.max(16, size * 2);
+                priceCents = Arrays.copyOf(priceCents, capacity);
+                productIds = Arrays.copyOf(productIds, capacity);
+            }
+            int position = -(search(cents, productId) + 1);
+            System.arraycopy(priceCents, position, priceCents, position + 1, size - position);
+            System.arraycopy(productIds, position, productIds, position + 1, size - position);
+            priceCents[position] = cents;
+            productIds[position] = productId;
+            size++;
+            if (productId >= priceById.length) {
+                int oldLength = priceById.length;
+                priceById = Arrays.copyOf(priceById, Math.max(oldLength * 2, productId + 1));
+                Arrays.fill(priceById, oldLength, priceById.length, ABSENT);
+            }
+            priceById[productId] = cents;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Ids priced within [minCents, maxCents], both inclusive.
+     */
+    public BitSet range(long minCents, long maxCents) {
+        lock.readLock().lock();
+        try {
+            BitSet result = new BitSet();
+            if (minCents > maxCents) {
+                return result;
+            }
+            int from = lowerBound(minCents);
+            int to = maxCents == Long.MAX_VALUE ? size : lowerBound(maxCents + 1);
+            for (int i = from; i < to; i++) {
+                result.set(productIds[i]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Walks the ids in price order, keeping those in {@code filter}, and returns one page of them.
+     * Descending order still lists equal prices by ascending id.
+     */
+    public List<Integer> page(BitSet filter, boolean descending, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Integer> page = new ArrayList<>(Math.max(Math.min(limit, filter.cardinality() - offset), 0));
+            int skipped = 0;
+            if (!descending) {
+                for (int i = 0; i < size && page.size() < limit; i++) {
+                    if (filter.get(productIds[i]) && skipped++ >= offset) {
+                        page.add(productIds[i]);
+                    }
+                }
+                return page;
+            }
+            int groupEnd = size;
+            while (groupEnd > 0 && page.size() < limit) {
+                int groupStart = groupEnd - 1;
+                while (groupStart > 0 && priceCents[groupStart - 1] == priceCents[groupEnd - 1]) {
+                    groupStart--;
+                }
+                for (int i = groupStart; i < groupEnd && page.size() < limit; i++) {
+                    if (filter.get(productIds[i]) && skipped++ >= offset) {
+                        page.add(productIds[i]);
+                    }
+                }
+                groupEnd = groupStart;
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void removeLocked(int productId) {
+        if (productId < 0 || productId >= priceById.length || priceById[productId] == ABSENT) {
+            return;
+        }
+        int position = search(priceById[productId], productId);
+        if (position >= 0) {
+            System.arraycopy(priceCents, position + 1, priceCents, position, size - position - 1);
+            System.arraycopy(productIds, position + 1, productIds, position, size - position - 1);
+            size--;
+        }
+        priceById[productId] = ABSENT;
+    }
+    
+    private int search(long cents, int productId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(priceCents[mid], productIds[mid], cents, productId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+    
+    private int lowerBound(long cents) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (priceCents[mid] < cents) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int compare(long priceA, int idA, long priceB, int idB) {
+        int cmp = Long.compare(priceA, priceB);
+        return cmp != 0 ? cmp : Integer.compare(idA, idB);
+    }
+    
+    private static void sort(long[] prices, int[] ids) {
+        long[] priceBuffer = new long[prices.length];
+        int[] idBuffer = new int[ids.length];
+        for (int width = 1; width < prices.length; width *= 2) {
+            for (int lo = 0; lo < prices.length - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, prices.length);
+                System.arraycopy(prices, lo, priceBuffer, lo, hi - lo);
+                System.arraycopy(ids, lo, idBuffer, lo, hi - lo);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (i < mid && (j >= hi || compare(priceBuffer[i], idBuffer[i], priceBuffer[j], idBuffer[j]) <= 0)) {
+                        prices[k] = priceBuffer[i];
+                        ids[k] = idBuffer[i++];
+                    } else {
+                        prices[k] = priceBuffer[j];
+                        ids[k] = idBuffer[j++];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache of detached product views keyed by product id. Writers evict the
+ * entry; a load that started before an eviction is not stored, so a slow read can never
+ * put an older row back.
+ */
+@Component
+public class ProductCache {
+    
+    @Value("${computershop.product-cache.max-size:1000}")
+    private int maxSize;
+    
+    private final Map<Integer, ProductView> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ProductView> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    public Optional<ProductView> get(Integer productId, Function<Integer, Optional<ProductView>> loader) {
+        synchronized (entries) {
+            ProductView cached = entries.get(productId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached);
+            }
+        }
+        misses.incrementAndGet();
+        return load(productId, loader);
+    }
+    
+    public Optional<ProductView> refresh(Integer productId, Function<Integer, Optional<ProductView>> loader) {
+        evictNow(productId);
+        return load(productId, loader);
+    }
+    
+    public void evict(Integer productId) {
+        evictNow(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(productId);
+                }
+            });
+        }
+    }
+    
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+    
+    public CacheStats getStats() {
+        synchronized (entries) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), entries.size(), maxSize);
+        }
+    }
+    
+    private Optional<ProductView> load(Integer productId, Function<Integer, Optional<ProductView>> loader) {
+        long startedAt = generation.get();
+        Optional<ProductView> loaded = loader.apply(productId);
+        loaded.ifPresent(view -> {
+            synchronized (entries) {
+                if (generation.get() == startedAt) {
+                    entries.put(productId, view);
+                }
+            }
+        });
+        return loaded;
+    }
+    
+    private void evictNow(Integer productId) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(productId);
+        }
+    }
+    
+    /**
+     * Read-only copy of a product with its category and image already resolved. The nested
+     * getters mirror the entity so templates can use either.
+     */
+    public static final class ProductView {
+        private final Integer productId;
+        private final String productName;
+        private final String description;
+        private final BigDecimal price;
+        private final Integer stockQuantity;
+        private final LocalDateTime createdAt;
+        private final CategoryRef category;
+        private final ImageRef image;
+        
+        private ProductView(Product product) {
+            this.productId = product.getProductId();
+            this.productName = product.getProductName();
+            this.description = product.getDescription();
+            this.price = product.getPrice();
+            this.stockQuantity = product.getStockQuantity();
+            this.createdAt = product.getCreatedAt();
+            this.category = product.getCategory() != null
+                    ? new CategoryRef(product.getCategory().getCategoryId(), product.getCategory().getCategoryName())
+                    : null;
+            this.image = product.getImage() != null ? new ImageRef(product.getImage().getImageUrl()) : null;
+        }
+        
+        private ProductView(ProductView source, Integer stockQuantity) {
+            this.productId = source.productId;
+            this.productName = source.productName;
+            this.description = source.description;
+            this.price = source.price;
+            this.stockQuantity = stockQuantity;
+            this.createdAt = source.createdAt;
+            this.category = source.category;
+            this.image = source.image;
+        }
+        
+        public static ProductView of(Product product) {
+            return new ProductView(product);
+        }
+        
+        /**
+         * Same view with another stock figure, for overlaying live stock on a cached copy.
+         */
+        public ProductView withStockQuantity(Integer stockQuantity) {
+            return Objects.equals(this.stockQuantity, stockQuantity) ? this : new ProductView(this, stockQuantity);
+        }
+        
+        public Integer getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public String getDescription() { return description; }
+        public BigDecimal getPrice() { return price; }
+        public Integer getStockQuantity() { return stockQuantity; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public CategoryRef getCategory() { return category; }
+        public ImageRef getImage() { return image; }
+        
+        public Integer getCategoryId() { return category != null ? category.getCategoryId() : null; }
+        public String getImageUrl() { return image != null ? image.getImageUrl() : null; }
+    }
+    
+    public static final class CategoryRef {
+        private final Integer categoryId;
+        private final String categoryName;
+        
+        private CategoryRef(Integer categoryId, String categoryName) {
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+        }
+        
+        public Integer getCategoryId() { return categoryId; }
+        public String getCategoryName() { return categoryName; }
+    }
+    
+    public static final class ImageRef {
+        private final String imageUrl;
+        
+        private ImageRef(String imageUrl) {
+            this.imageUrl = imageUrl;
+        }
+        
+        public String getImageUrl() { return imageUrl; }
+    }
+    
+    public static class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final int maxSize;
+        
+        public CacheStats(long hits, long misses, long evictions, int size, int maxSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+        
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public int getSize() { return size; }
+        public int getMaxSize() { return maxSize; }
+        
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Product;
+import com.computershop.main.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product names and descriptions, ranked with BM25.
+ * The last query term is also matched as a prefix so partially typed words still hit.
+ * Terms are folded to unaccented lowercase, and a query term missing from the index is
+ * widened to indexed terms within a small edit distance found through a trigram index.
+ */
+@Component
+public class ProductSearchIndex {
+
+    public enum Field { NAME, DESCRIPTION }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_BOOST = 2.0;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MAX_FUZZY_EXPANSIONS = 10;
+    private static final double FUZZY_PENALTY = 0.5;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Vocabulary vocabulary = new Vocabulary();
+    private final FieldIndex nameIndex = new FieldIndex(vocabulary);
+    private final FieldIndex descriptionIndex = new FieldIndex(vocabulary);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = productRepository.findSearchableFields();
+        lock.writeLock().lock();
+        try {
+            nameIndex.clear();
+            descriptionIndex.clear();
+            for (Object[] row : rows) {
+                Integer productId = (Integer) row[0];
+                nameIndex.add(productId, tokenize((String) row[1]));
+                descriptionIndex.add(productId, tokenize((String) row[2]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        String[] nameTerms = tokenize(product.getProductName());
+        String[] descriptionTerms = tokenize(product.getDescription());
+        lock.writeLock().lock();
+        try {
+            nameIndex.remove(product.getProductId());
+            descriptionIndex.remove(product.getProductId());
+            nameIndex.add(product.getProductId(), nameTerms);
+            descriptionIndex.add(product.getProductId(), descriptionTerms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            nameIndex.remove(productId);
+            descriptionIndex.remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> search(String query, int limit) {
+        return search(query, limit, Field.NAME, Field.DESCRIPTION);
+    }
+
+    public List<Integer> search(String query, int limit, Field... fields) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (int i = 0; i < terms.length; i++) {
+                boolean prefix = i == terms.length - 1;
+                Map<Integer, Double> termScores = new HashMap<>();
+                for (Field field : fields) {
+                    FieldIndex index = field == Field.NAME ? nameIndex : descriptionIndex;
+                    double boost = field == Field.NAME ? NAME_BOOST : 1.0;
+                    index.score(terms[i], prefix, boost, termScores);
+                }
+                if (termScores.isEmpty() && !vocabulary.contains(terms[i], prefix)) {
+                    for (Map.Entry<String, Integer> similar : vocabulary.similar(terms[i]).entrySet()) {
+                        double penalty = Math.pow(FUZZY_PENALTY, similar.getValue());
+                        for (Field field : fields) {
+                            FieldIndex index = field == Field.NAME ? nameIndex : descriptionIndex;
+                            double boost = field == Field.NAME ? NAME_BOOST : 1.0;
+                            index.score(similar.getKey(), false, boost * penalty, termScores);
+                        }
+                    }
+                }
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Integer, Double> current = scores;
+                    termScores.keySet().retainAll(current.keySet());
+                    termScores.replaceAll((id, score) -> score + current.get(id));
+                    scores = termScores;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : Integer.compare(a.getKey(), b.getKey());
+            });
+
+            List<Integer> result = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (Map.Entry<Integer, Double> entry : ranked) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(entry.getKey());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the query with each unknown term replaced by its closest indexed term, or
+     * returns null when every term is already known or has no close match.
+     */
+    public String suggestCorrection(String query) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            boolean changed = false;
+            for (int i = 0; i < terms.length; i++) {
+                if (vocabulary.contains(terms[i], i == terms.length - 1)) {
+                    continue;
+                }
+                String best = vocabulary.closest(terms[i]);
+                if (best != null) {
+                    terms[i] = best;
+                    changed = true;
+                }
+            }
+            return changed ? String.join(" ", terms) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(fold(text).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Lowercases and strips diacritics, so "Bàn phím cơ" and "ban phim co" fold to the same text.
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").replace('đ', 'd');
+    }
+
+    private static final class FieldIndex {
+        private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+        private final Map<Integer, String[]> documents = new HashMap<>();
+        private final Vocabulary vocabulary;
+        private long totalLength;
+
+        FieldIndex(Vocabulary vocabulary) {
+            this.vocabulary = vocabulary;
+        }
+
+        void clear() {
+            postings.keySet().forEach(vocabulary::release);
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        }
+
+        void add(Integer productId, String[] terms) {
+            documents.put(productId, terms);
+            totalLength += terms.length;
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> {
+                    vocabulary.acquire(t);
+                    return new HashMap<>();
+                }).merge(productId, 1, Integer::sum);
+            }
+        }
+
+        void remove(Integer productId) {
+            String[] terms = documents.remove(productId);
+            if (terms == null) {
+                return;
+            }
+            totalLength -= terms.length;
+            for (String term : terms) {
+                Map<Integer, Integer> docs = postings.get(term);
+                if (docs != null) {
+                    docs.remove(productId);
+                    if (docs.isEmpty()) {
+                        postings.remove(term);
+                        vocabulary.release(term);
+                    }
+                }
+            }
+        }
+
+        void score(String term, boolean prefix, double boost, Map<Integer, Double> out) {
+            if (documents.isEmpty()) {
+                return;
+            }
+            if (!prefix) {
+                scoreTerm(postings.get(term), boost, out);
+                return;
+            }
+            int expansions = 0;
+            for (Map.Entry<String, Map<Integer, Integer>> entry : postings.tailMap(term, true).entrySet()) {
+                if (!entry.getKey().startsWith(term) || expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                scoreTerm(entry.getValue(), boost, out);
+            }
+        }
+
+        private void scoreTerm(Map<Integer, Integer> docs, double boost, Map<Integer, Double> out) {
+            if (docs == null || docs.isEmpty()) {
+                return;
+            }
+            int n = documents.size();
+            double avgLength = (double) totalLength / n;
+            double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+            for (Map.Entry<Integer, Integer> doc : docs.entrySet()) {
+                int tf = doc.getValue();
+                int length = documents.get(doc.getKey()).length;
+                double norm = tf + K1 * (1 - B + B * length / Math.max(avgLength, 1.0));
+                double score = boost * idf * (tf * (K1 + 1)) / norm;
+                out.merge(doc.getKey(), score, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Terms present in either field, with a trigram index for finding near misses.
+     */
+    private static final class Vocabulary {
+        private final NavigableMap<String, Integer> terms = new TreeMap<>();
+        private final Map<String, Set<String>> trigrams = new HashMap<>();
+
+        void acquire(String term) {
+            if (terms.merge(term, 1, Integer::sum) == 1) {
+                for (String gram : trigrams(term)) {
+                    trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                }
+            }
+        }
+
+        void release(String term) {
+            Integer count = terms.get(term);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                terms.put(term, count - 1);
+                return;
+            }
+            terms.remove(term);
+            for (String gram : trigrams(term)) {
+                Set<String> matches = trigrams.get(gram);
+                if (matches != null) {
+                    matches.remove(term);
+                    if (matches.isEmpty()) {
+                        trigrams.remove(gram);
+                    }
+                }
+            }
+        }
+
+        boolean contains(String term, boolean prefix) {
+            if (!prefix) {
+                return terms.containsKey(term);
+            }
+            String next = terms.ceilingKey(term);
+            return next != null && next.startsWith(term);
+        }
+
+        /** Indexed terms within the allowed edit distance of term, closest first. */
+        Map<String, Integer> similar(String term) {
+            int maxDistance = maxDistance(term);
+            if (maxDistance == 0) {
+                return Map.of();
+            }
+            List<String> grams = trigrams(term);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String gram : grams) {
+                for (String candidate : trigrams.getOrDefault(gram, Set.of())) {
+                    shared.merge(candidate, 1, Integer::sum);
+                }
+            }
+
+            // each edit changes at most three trigrams
+            int minShared = Math.max(1, grams.size() - 3 * maxDistance);
+            List<Map.Entry<String, Integer>> matches = new ArrayList<>();
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                if (candidate.getValue() < minShared
+                        || Math.abs(candidate.getKey().length() - term.length()) > maxDistance) {
+                    continue;
+                }
+                int distance = editDistance(term, candidate.getKey(), maxDistance);
+                if (distance <= maxDistance) {
+                    matches.add(Map.entry(candidate.getKey(), distance));
+                }
+            }
+            matches.sort(Map.Entry.<String, Integer>comparingByValue()
+                    .thenComparing(e -> -terms.get(e.getKey()))
+                    .thenComparing(Map.Entry.comparingByKey()));
+
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> match : matches) {
+                if (result.size() >= MAX_FUZZY_EXPANSIONS) {
+                    break;
+                }
+                result.put(match.getKey(), match.getValue());
+            }
+            return result;
+        }
+
+        String closest(String term) {
+            Map<String, Integer> matches = similar(term);
+            return matches.isEmpty() ? null : matches.keySet().iterator().next();
+        }
+
+        private static int maxDistance(String term) {
+            if (term.length() <= 3) {
+                return 0;
+            }
+            return term.length() <= 6 ? 1 : 2;
+        }
+
+        private static List<String> trigrams(String term) {
+            String padded = "$" + term + "$";
+            List<String> grams = new ArrayList<>(padded.length());
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+            return grams;
+        }
+
+        /** Levenshtein distance, giving up with limit + 1 once every cell in a row exceeds limit. */
+        private static int editDistance(String a, String b, int limit) {
+            int[] previous = new int[b.length() + 1];
+            int[] current = new int[b.length() + 1];
+            for (int j = 0; j <= b.length(); j++) {
+                previous[j] = j;
+            }
+            for (int i = 1; i <= a.length(); i++) {
+                current[0] = i;
+                int rowMin = current[0];
+                for (int j = 1; j <= b.length(); j++) {
+                    int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                    current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                    rowMin = Math.min(rowMin, current[j]);
+                }
+                if (rowMin > limit) {
+                    return limit + 1;
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return previous[b.length()];
+        }
+    }
+}
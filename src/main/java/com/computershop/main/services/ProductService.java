@@ -6,23 +6,74 @@ import com.computershop.main.entities.Category;
 import com.computershop.main.repositories.ProductRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class ProductService {
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    
+    /** Catalog sort that keeps the search ranking; the default whenever there is a query. */
+    public static final String SORT_RELEVANCE = "relevance";
+    
+    private static final int BOUGHT_TOGETHER_LIMIT = 4;
+    
     @Autowired
     private ProductRepository productRepository;
     
     @Autowired
     private ImageService imageService;
     
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private CategoryCatalogCache categoryCatalogCache;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private RelatedProductsIndex relatedProductsIndex;
+    
+    @Autowired
+    private CatalogFacetIndex catalogFacetIndex;
+    
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+    
+    @Autowired
+    private BestSellerRanking bestSellerRanking;
+    
+    @Autowired
+    private ProductViewCounter productViewCounter;
+    
+    @Autowired
+    private CoPurchaseIndex coPurchaseIndex;
+    
     public List<Product> getAllProducts() {
         return productRepository.findAllWithCategoryAndImage();
     }
@@ -31,16 +82,107 @@ public class ProductService {
         return productRepository.findById(productId);
     }
     
+    public Optional<ProductCache.ProductView> getProductView(Integer productId) {
+        return productCache.get(productId, this::loadProductView);
+    }
+    
+    public Optional<ProductCache.ProductView> getFreshProductView(Integer productId) {
+        return productCache.refresh(productId, this::loadProductView);
+    }
+    
+    public ProductCache.CacheStats getProductCacheStats() {
+        return productCache.getStats();
+    }
+    
+    private Optional<ProductCache.ProductView> loadProductView(Integer productId) {
+        return productRepository.findAllWithCategoryAndImageByIdIn(List.of(productId)).stream()
+                .findFirst()
+                .map(ProductCache.ProductView::of);
+    }
+    
+    public Optional<ProductCache.ProductView> getStorefrontProduct(Integer productId) {
+        ProductCache.ProductView product = catalogSnapshotService.getSnapshot().getProduct(productId);
+        return (product != null ? Optional.of(product) : getProductView(productId)).map(this::withLiveStock);
+    }
+    
+    /**
+     * Replaces the stock figure of a snapshot or cached view with the committed stock kept by the
+     * facet index, which every stock change updates after commit.
+     */
+    private ProductCache.ProductView withLiveStock(ProductCache.ProductView product) {
+        int stock = catalogFacetIndex.getStock(product.getProductId());
+        return stock >= 0 ? product.withStockQuantity(stock) : product;
+    }
+    
+    public Product getProductReference(Integer productId) {
+        return productRepository.getReferenceById(productId);
+    }
+    
     public List<Product> searchProductsByName(String keyword) {
-        return productRepository.findByProductNameContainingIgnoreCase(keyword);
+        return findAllInOrder(productSearchIndex.search(keyword, MAX_SEARCH_RESULTS, ProductSearchIndex.Field.NAME));
     }
     
     public List<Product> searchProductsByDescription(String keyword) {
-        return productRepository.findByDescriptionContainingIgnoreCase(keyword);
+        return findAllInOrder(productSearchIndex.search(keyword, MAX_SEARCH_RESULTS, ProductSearchIndex.Field.DESCRIPTION));
     }
     
     public List<Product> searchProducts(String keyword) {
-        return productRepository.searchProducts(keyword);
+        return findAllInOrder(productSearchIndex.search(keyword, MAX_SEARCH_RESULTS));
+    }
+    
+    private List<Product> findAllInOrder(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Integer> rank = new HashMap<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            rank.put(productIds.get(i), i);
+        }
+        return productRepository.findAllWithCategoryAndImageByIdIn(productIds).stream()
+                .sorted(Comparator.comparing(p -> rank.get(p.getProductId())))
+                .toList();
+    }
+    
+    /**
+     * Resolves ids from the catalog snapshot, loading only those it does not have yet
+     * (products written since the last rebuild).
+     */
+    private List<ProductCache.ProductView> findViewsInOrder(List<Integer> productIds) {
+        CatalogSnapshotService.CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        Map<Integer, ProductCache.ProductView> missing = new HashMap<>();
+        for (Integer productId : productIds) {
+            if (snapshot.getProduct(productId) == null) {
+                missing.put(productId, null);
+            }
+        }
+        if (!missing.isEmpty()) {
+            productRepository.findAllWithCategoryAndImageByIdIn(missing.keySet())
+                    .forEach(p -> missing.put(p.getProductId(), ProductCache.ProductView.of(p)));
+        }
+        
+        List<ProductCache.ProductView> result = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            ProductCache.ProductView product = snapshot.getProduct(productId);
+            if (product == null) {
+                product = missing.get(productId);
+            }
+            if (product != null) {
+                result.add(withLiveStock(product));
+            }
+        }
+        return result;
+    }
+    
+    public String suggestSpelling(String keyword) {
+        return productSearchIndex.suggestCorrection(keyword);
+    }
+    
+    public List<ProductSuggestIndex.Suggestion> suggestProducts(String prefix) {
+        return productSuggestIndex.suggest(prefix, ProductSuggestIndex.MAX_SUGGESTIONS);
+    }
+    
+    public List<ProductCache.ProductView> getRelatedProducts(Integer productId) {
+        return findViewsInOrder(relatedProductsIndex.getRelated(productId));
     }
     
     public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
@@ -67,8 +209,50 @@ public class ProductService {
         return productRepository.findAllByOrderByPriceDesc();
     }
     
-    public List<Product> getTopSellingProducts() {
-        return productRepository.findTopSellingProducts();
+    public List<ProductCache.ProductView> getBoughtTogether(Integer productId) {
+        return findViewsInOrder(coPurchaseIndex.neighbours(productId, BOUGHT_TOGETHER_LIMIT));
+    }
+    
+    public List<ProductCache.ProductView> getBoughtTogetherForCart(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        return findViewsInOrder(coPurchaseIndex.neighboursOfBasket(productIds, BOUGHT_TOGETHER_LIMIT));
+    }
+    
+    public void recordView(Integer productId) {
+        productViewCounter.record(productId);
+    }
+    
+    public long getViewCount(Integer productId) {
+        Long stored = productRepository.findById(productId).map(Product::getViewCount).orElse(null);
+        return (stored != null ? stored : 0L) + productViewCounter.getPendingCount(productId);
+    }
+    
+    public List<ViewedProduct> getMostViewedProducts(int limit) {
+        List<ViewedProduct> result = new ArrayList<>();
+        for (Object[] row : productRepository.findMostViewed(PageRequest.of(0, limit))) {
+            Integer productId = (Integer) row[0];
+            long views = ((Number) row[2]).longValue() + productViewCounter.getPendingCount(productId);
+            result.add(new ViewedProduct(productId, (String) row[1], views));
+        }
+        return result;
+    }
+    
+    public List<BestSeller> getBestSellers(BestSellerRanking.Window window, int limit) {
+        List<BestSellerRanking.RankedProduct> ranked = bestSellerRanking.top(window, Math.min(limit, MAX_PAGE_SIZE));
+        Map<Integer, ProductCache.ProductView> views = new HashMap<>();
+        for (ProductCache.ProductView view : findViewsInOrder(ranked.stream().map(BestSellerRanking.RankedProduct::getProductId).toList())) {
+            views.put(view.getProductId(), view);
+        }
+        List<BestSeller> result = new ArrayList<>(ranked.size());
+        for (BestSellerRanking.RankedProduct entry : ranked) {
+            ProductCache.ProductView view = views.get(entry.getProductId());
+            if (view != null) {
+                result.add(new BestSeller(view, entry.getUnitsSold()));
+            }
+        }
+        return result;
     }
     
     public Product createProduct(Product product) {
@@ -77,7 +261,10 @@ public class ProductService {
             product.setImage(imageService.getPlaceholderImage());
         }
         
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        onProductSaved(saved);
+        categoryCatalogCache.invalidate();
+        return saved;
     }
     
     public Product createProduct(String productName, String description, 
@@ -95,7 +282,10 @@ public class ProductService {
             product.setImage(imageService.getPlaceholderImage());
         }
         
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        onProductSaved(saved);
+        categoryCatalogCache.invalidate();
+        return saved;
     }
     
     public Product updateProduct(Integer productId, Product productDetails) {
@@ -111,7 +301,20 @@ public class ProductService {
             product.setImage(productDetails.getImage());
         }
         
-        return productRepository.save(product);
+        boolean categoryChanged = false;
+        if (productDetails.getCategory() != null) {
+            Integer oldCategoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+            categoryChanged = !Objects.equals(productDetails.getCategory().getCategoryId(), oldCategoryId);
+            product.setCategory(productDetails.getCategory());
+        }
+        
+        Product saved = productRepository.save(product);
+        productCache.evict(productId);
+        onProductSaved(saved);
+        if (categoryChanged) {
+            categoryCatalogCache.invalidate();
+        }
+        return saved;
     }
     
     public Product updateProductStock(Integer productId, Integer newStock) {
@@ -119,27 +322,39 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
         
         product.setStockQuantity(newStock);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productCache.evict(productId);
+        catalogFacetIndex.index(saved);
+        return saved;
     }
     
-    public Product decreaseStock(Integer productId, Integer quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
-        
-        if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity() + ", Requested: " + quantity);
+    @Transactional
+    public void decreaseStock(Integer productId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Quantity must be greater than 0");
         }
         
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        return productRepository.save(product);
+        productCache.evict(productId);
+        if (productRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+            throw new RuntimeException("Insufficient stock for product: " + product.getProductName() +
+                    ". Available: " + product.getStockQuantity() + ", Requested: " + quantity);
+        }
+        catalogFacetIndex.adjustStock(productId, -quantity);
     }
     
-    public Product increaseStock(Integer productId, Integer quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+    @Transactional
+    public void increaseStock(Integer productId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Quantity must be greater than 0");
+        }
         
-        product.setStockQuantity(product.getStockQuantity() + quantity);
-        return productRepository.save(product);
+        productCache.evict(productId);
+        if (productRepository.incrementStock(productId, quantity) == 0) {
+            throw new RuntimeException("Product not found with id: " + productId);
+        }
+        catalogFacetIndex.adjustStock(productId, quantity);
     }
     
     public void deleteProduct(Integer productId) {
@@ -147,16 +362,35 @@ public class ProductService {
             throw new RuntimeException("Product not found with id: " + productId);
         }
         productRepository.deleteById(productId);
+        productCache.evict(productId);
+        onProductRemoved(productId);
+        categoryCatalogCache.invalidate();
+    }
+    
+    private void onProductSaved(Product saved) {
+        productSearchIndex.index(saved);
+        relatedProductsIndex.index(saved);
+        catalogFacetIndex.index(saved);
+        productSuggestIndex.index(saved);
+        catalogSnapshotService.requestRebuild();
+    }
+    
+    private void onProductRemoved(Integer productId) {
+        productSearchIndex.remove(productId);
+        relatedProductsIndex.remove(productId);
+        catalogFacetIndex.remove(productId);
+        productSuggestIndex.remove(productId);
+        catalogSnapshotService.requestRebuild();
     }
     
     public boolean isInStock(Integer productId) {
-        Product product = productRepository.findById(productId)
+        ProductCache.ProductView product = getFreshProductView(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
         return product.getStockQuantity() > 0;
     }
     
     public boolean hasSufficientStock(Integer productId, Integer requestedQuantity) {
-        Product product = productRepository.findById(productId)
+        ProductCache.ProductView product = getFreshProductView(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
         return product.getStockQuantity() >= requestedQuantity;
     }
@@ -165,13 +399,22 @@ public class ProductService {
         return productRepository.countInStockProducts();
     }
     
-    public List<Product> getFeaturedProducts(int limit) {
-        List<Product> allFeatured = productRepository.findFeaturedProductsWithDetails();
-        return allFeatured.stream().limit(limit).toList();
+    public List<ProductCache.ProductView> getFeaturedProducts(int limit) {
+        List<ProductCache.ProductView> featured = new ArrayList<>(limit);
+        for (ProductCache.ProductView product : catalogSnapshotService.getSnapshot().getNewest()) {
+            if (featured.size() >= limit) {
+                break;
+            }
+            ProductCache.ProductView live = withLiveStock(product);
+            if (live.getStockQuantity() != null && live.getStockQuantity() > 0) {
+                featured.add(live);
+            }
+        }
+        return featured;
     }
     
     public long getTotalProducts() {
-        return productRepository.count();
+        return catalogSnapshotService.getSnapshot().getProductCount();
     }
     
     public List<Category> getAllCategories() {
@@ -179,21 +422,25 @@ public class ProductService {
     }
     
     public List<String> getAllCategoryNames() {
-        return getAllCategories().stream()
-                .map(Category::getCategoryName)
-                .toList();
+        return categoryCatalogCache.getCategoryNamesWithProducts();
     }
     
     public List<Product> getProductsByCategory(Category category) {
         return productRepository.findByCategory(category);
     }
     
-    public List<Product> getProductsByCategoryName(String categoryName) {
-        return productRepository.findDistinctCategories().stream()
-                .filter(cat -> cat.getCategoryName().equals(categoryName))
-                .findFirst()
-                .map(this::getProductsByCategory)
-                .orElse(List.of());
+    public List<ProductCache.ProductView> getProductsByCategoryName(String categoryName) {
+        Optional<Integer> categoryId = categoryCatalogCache.findCategoryId(categoryName);
+        if (categoryId.isEmpty()) {
+            return List.of();
+        }
+        CatalogSnapshotService.CatalogSnapshot snapshot = catalogSnapshotService.getSnapshot();
+        if (snapshot.isComplete()) {
+            return snapshot.getProductsInCategory(categoryId.get()).stream().map(this::withLiveStock).toList();
+        }
+        CatalogFacetIndex.FacetQuery query = new CatalogFacetIndex.FacetQuery();
+        query.getCategoryIds().add(categoryId.get());
+        return findViewsInOrder(catalogFacetIndex.sortedPage(catalogFacetIndex.filter(query), "name", 0, Integer.MAX_VALUE));
     }
     
     public List<Product> getProductsByCategoryId(Integer categoryId) {
@@ -217,13 +464,189 @@ public class ProductService {
         return productRepository.findLowStockProducts(pageable);
     }
     
+    /**
+     * One page of the catalog listing and the facet counts beside it. The keyword is searched once
+     * and the matches feed both.
+     */
+    public CatalogListing getCatalogListing(String keyword, List<String> categoryNames,
+                                            List<String> priceBands, List<String> stockStates,
+                                            BigDecimal minPrice, BigDecimal maxPrice,
+                                            String sort, int page, int size) {
+        List<Integer> ranked = searchRanked(keyword);
+        CatalogFacetIndex.FacetQuery query = buildFacetQuery(ranked, categoryNames, priceBands, stockStates, minPrice, maxPrice);
+        return new CatalogListing(getCatalogPage(ranked, query, sort, page, size), getCatalogFacets(query));
+    }
+    
+    private Page<ProductCache.ProductView> getCatalogPage(List<Integer> ranked, CatalogFacetIndex.FacetQuery query,
+                                                          String sort, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        
+        BitSet matches = catalogFacetIndex.filter(query);
+        int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+        List<Integer> pageIds = ranked != null && (sort == null || sort.isBlank() || SORT_RELEVANCE.equals(sort))
+                ? rankedPage(ranked, matches, offset, pageable.getPageSize())
+                : catalogFacetIndex.sortedPage(matches, SORT_RELEVANCE.equals(sort) ? "name" : sort, offset, pageable.getPageSize());
+        return new PageImpl<>(findViewsInOrder(pageIds), pageable, matches.cardinality());
+    }
+    
+    /**
+     * Every match of the keyword, best first, or null without a keyword. The catalog pages
+     * through all matches, so nothing is cut off here.
+     */
+    private List<Integer> searchRanked(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return null;
+        }
+        return productSearchIndex.search(keyword, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * A page of the ranked ids that survive the facet filter, in ranking order.
+     */
+    private static List<Integer> rankedPage(List<Integer> ranked, BitSet matches, int offset, int limit) {
+        List<Integer> page = new ArrayList<>(Math.min(limit, ranked.size()));
+        int skipped = 0;
+        for (Integer productId : ranked) {
+            if (!matches.get(productId)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            page.add(productId);
+            if (page.size() >= limit) {
+                break;
+            }
+        }
+        return page;
+    }
+    
+    private CatalogFacets getCatalogFacets(CatalogFacetIndex.FacetQuery query) {
+        CatalogFacetIndex.FacetCounts counts = catalogFacetIndex.count(query);
+        
+        Map<String, Integer> categoryCounts = new LinkedHashMap<>();
+        for (CategoryCatalogCache.CategoryEntry category : categoryCatalogCache.getCategories()) {
+            Integer count = counts.getCategoryCounts().get(category.getCategoryId());
+            if (count != null) {
+                categoryCounts.put(category.getCategoryName(), count);
+            }
+        }
+        return new CatalogFacets(categoryCounts, counts.getPriceBandCounts(), counts.getStockStateCounts());
+    }
+    
+    public Map<CatalogFacetIndex.StockState, Integer> getStockStateCounts() {
+        Map<CatalogFacetIndex.StockState, Integer> counts = new EnumMap<>(CatalogFacetIndex.StockState.class);
+        for (CatalogFacetIndex.StockState state : CatalogFacetIndex.StockState.values()) {
+            counts.put(state, catalogFacetIndex.countByStockState(state));
+        }
+        return counts;
+    }
+    
+    private CatalogFacetIndex.FacetQuery buildFacetQuery(List<Integer> searchMatches, List<String> categoryNames,
+                                                         List<String> priceBands, List<String> stockStates,
+                                                         BigDecimal minPrice, BigDecimal maxPrice) {
+        CatalogFacetIndex.FacetQuery query = new CatalogFacetIndex.FacetQuery();
+        query.setMinPrice(minPrice);
+        query.setMaxPrice(maxPrice);
+        
+        if (categoryNames != null) {
+            for (String name : categoryNames) {
+                if (name != null && !name.trim().isEmpty()) {
+                    // an unknown name still counts as a selection, so it matches nothing
+                    query.getCategoryIds().add(categoryCatalogCache.findCategoryId(name.trim()).orElse(-1));
+                }
+            }
+        }
+        if (priceBands != null) {
+            priceBands.stream()
+                    .map(CatalogFacetIndex.PriceBand::fromParam)
+                    .filter(Objects::nonNull)
+                    .forEach(query.getPriceBands()::add);
+        }
+        if (stockStates != null) {
+            stockStates.stream()
+                    .map(CatalogFacetIndex.StockState::fromParam)
+                    .filter(Objects::nonNull)
+                    .forEach(query.getStockStates()::add);
+        }
+        
+        if (searchMatches != null) {
+            BitSet candidates = new BitSet();
+            searchMatches.forEach(candidates::set);
+            query.setCandidates(candidates);
+        }
+        return query;
+    }
+    
     public void updateStock(Integer productId, int newStock) {
         Optional<Product> productOpt = productRepository.findById(productId);
         if (productOpt.isPresent()) {
             Product product = productOpt.get();
             product.setStockQuantity(newStock);
             productRepository.save(product);
+            productCache.evict(productId);
+            catalogFacetIndex.index(product);
         }
     }
     
+    public static class ViewedProduct {
+        private final Integer productId;
+        private final String productName;
+        private final long viewCount;
+        
+        public ViewedProduct(Integer productId, String productName, long viewCount) {
+            this.productId = productId;
+            this.productName = productName;
+            this.viewCount = viewCount;
+        }
+        
+        public Integer getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public long getViewCount() { return viewCount; }
+    }
+    
+    public static class BestSeller {
+        private final ProductCache.ProductView product;
+        private final int unitsSold;
+        
+        public BestSeller(ProductCache.ProductView product, int unitsSold) {
+            this.product = product;
+            this.unitsSold = unitsSold;
+        }
+        
+        public ProductCache.ProductView getProduct() { return product; }
+        public int getUnitsSold() { return unitsSold; }
+    }
+    
+    public static class CatalogListing {
+        private final Page<ProductCache.ProductView> page;
+        private final CatalogFacets facets;
+        
+        public CatalogListing(Page<ProductCache.ProductView> page, CatalogFacets facets) {
+            this.page = page;
+            this.facets = facets;
+        }
+        
+        public Page<ProductCache.ProductView> getPage() { return page; }
+        public CatalogFacets getFacets() { return facets; }
+    }
+    
+    public static class CatalogFacets {
+        private final Map<String, Integer> categoryCounts;
+        private final Map<CatalogFacetIndex.PriceBand, Integer> priceBandCounts;
+        private final Map<CatalogFacetIndex.StockState, Integer> stockStateCounts;
+        
+        public CatalogFacets(Map<String, Integer> categoryCounts,
+                             Map<CatalogFacetIndex.PriceBand, Integer> priceBandCounts,
+                             Map<CatalogFacetIndex.StockState, Integer> stockStateCounts) {
+            this.categoryCounts = categoryCounts;
+            this.priceBandCounts = priceBandCounts;
+            this.stockStateCounts = stockStateCounts;
+        }
+        
+        public Map<String, Integer> getCategoryCounts() { return categoryCounts; }
+        public Map<CatalogFacetIndex.PriceBand, Integer> getPriceBandCounts() { return priceBandCounts; }
+        public Map<CatalogFacetIndex.StockState, Integer> getStockStateCounts() { return stockStateCounts; }
+    }
 }
\ No newline at end of file
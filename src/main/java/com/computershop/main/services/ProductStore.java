@@ -0,0 +1,405 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Product;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap column store for the fields listing needs: one fixed-size record per product in a
+ * direct buffer, with names and descriptions as UTF-8 in a separate append-only arena. The heap
+ * only holds an int slot per product id, so millions of products cost little GC work. Each name
+ * also has a vi-VN collation key in the arena, computed only when the name changes, so name
+ * ordering is a byte comparison.
+ */
+@Component
+public class ProductStore {
+    
+    public static final int NONE = 0;
+    
+    private static final int RECORD_SIZE = 56;
+    private static final int PRODUCT_ID = 0;
+    private static final int PRICE_CENTS = 4;
+    private static final int STOCK = 12;
+    private static final int CATEGORY_ID = 16;
+    private static final int IMAGE_ID = 20;
+    private static final int CREATED_AT = 24;
+    private static final int NAME_OFFSET = 32;
+    private static final int NAME_LENGTH = 36;
+    private static final int DESCRIPTION_OFFSET = 40;
+    private static final int DESCRIPTION_LENGTH = 44;
+    private static final int SORT_KEY_OFFSET = 48;
+    private static final int SORT_KEY_LENGTH = 52;
+    
+    private static final int INITIAL_RECORDS = 1024;
+    private static final int INITIAL_ARENA_BYTES = 64 * 1024;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Collator collator = createCollator();
+    private ByteBuffer records = ByteBuffer.allocateDirect(INITIAL_RECORDS * RECORD_SIZE);
+    private ByteBuffer arena = ByteBuffer.allocateDirect(INITIAL_ARENA_BYTES);
+    private int[] slots = new int[INITIAL_RECORDS];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int recordCount;
+    private int liveCount;
+    private int arenaUsed;
+    private int arenaGarbage;
+    
+    /**
+     * Stores the product and returns true when it is new or its name changed.
+     */
+    public boolean put(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return false;
+        }
+        return put(product.getProductId(),
+                toCents(product.getPrice()),
+                product.getStockQuantity() != null ? product.getStockQuantity() : 0,
+                product.getCategory() != null ? product.getCategory().getCategoryId() : NONE,
+                product.getImage() != null ? product.getImage().getImageId() : NONE,
+                product.getCreatedAt() != null ? product.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE,
+                product.getProductName(),
+                product.getDescription());
+    }
+    
+    public boolean put(int productId, long priceCents, int stock, int categoryId, int imageId,
+                       long createdAtMillis, String name, String description) {
+        byte[] nameBytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] descriptionBytes = description != null ? description.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(productId);
+            boolean renamed = slot < 0 || !nameEquals(slot, nameBytes);
+            if (slot < 0) {
+                slot = allocateSlot(productId);
+            } else {
+                arenaGarbage += records.getInt(slot * RECORD_SIZE + DESCRIPTION_LENGTH);
+                if (renamed) {
+                    arenaGarbage += records.getInt(slot * RECORD_SIZE + NAME_LENGTH)
+                            + records.getInt(slot * RECORD_SIZE + SORT_KEY_LENGTH);
+                }
+            }
+            int base = slot * RECORD_SIZE;
+            records.putInt(base + PRODUCT_ID, productId);
+            records.putLong(base + PRICE_CENTS, priceCents);
+            records.putInt(base + STOCK, stock);
+            records.putInt(base + CATEGORY_ID, categoryId);
+            records.putInt(base + IMAGE_ID, imageId);
+            records.putLong(base + CREATED_AT, createdAtMillis);
+            if (renamed) {
+                byte[] sortKey = collator.getCollationKey(name != null ? name : "").toByteArray();
+                records.putInt(base + NAME_OFFSET, append(nameBytes));
+                records.putInt(base + NAME_LENGTH, nameBytes.length);
+                records.putInt(base + SORT_KEY_OFFSET, append(sortKey));
+                records.putInt(base + SORT_KEY_LENGTH, sortKey.length);
+            }
+            records.putInt(base + DESCRIPTION_OFFSET, append(descriptionBytes));
+            records.putInt(base + DESCRIPTION_LENGTH, descriptionBytes.length);
+            
+            if (arenaGarbage > arenaUsed / 2 && arenaUsed > INITIAL_ARENA_BYTES) {
+                compactArena();
+            }
+            return renamed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(productId);
+            if (slot < 0) {
+                return;
+            }
+            int base = slot * RECORD_SIZE;
+            arenaGarbage += records.getInt(base + NAME_LENGTH) + records.getInt(base + DESCRIPTION_LENGTH)
+                    + records.getInt(base + SORT_KEY_LENGTH);
+            records.putInt(base + PRODUCT_ID, NONE);
+            slots[productId] = 0;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            liveCount--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            records = ByteBuffer.allocateDirect(INITIAL_RECORDS * RECORD_SIZE);
+            arena = ByteBuffer.allocateDirect(INITIAL_ARENA_BYTES);
+            slots = new int[INITIAL_RECORDS];
+            freeCount = 0;
+            recordCount = 0;
+            liveCount = 0;
+            arenaUsed = 0;
+            arenaGarbage = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Takes over everything in {@code other}, which was filled off to the side by a rebuild and must
+     * not be used afterwards.
+     */
+    public void replaceWith(ProductStore other) {
+        lock.writeLock().lock();
+        try {
+            records = other.records;
+            arena = other.arena;
+            slots = other.slots;
+            freeSlots = other.freeSlots;
+            freeCount = other.freeCount;
+            recordCount = other.recordCount;
+            liveCount = other.liveCount;
+            arenaUsed = other.arenaUsed;
+            arenaGarbage = other.arenaGarbage;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Adds delta to the stored stock, never going below zero. Returns the new stock or -1 if absent. */
+    public int adjustStock(int productId, int delta) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotOf(productId);
+            if (slot < 0) {
+                return -1;
+            }
+            int offset = slot * RECORD_SIZE + STOCK;
+            int stock = Math.max(records.getInt(offset) + delta, 0);
+            records.putInt(offset, stock);
+            return stock;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean contains(int productId) {
+        lock.readLock().lock();
+        try {
+            return slotOf(productId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public long getPriceCents(int productId) {
+        return readLong(productId, PRICE_CENTS, 0L);
+    }
+    
+    public int getStock(int productId) {
+        return readInt(productId, STOCK, 0);
+    }
+    
+    public int getCategoryId(int productId) {
+        return readInt(productId, CATEGORY_ID, NONE);
+    }
+    
+    public int getImageId(int productId) {
+        return readInt(productId, IMAGE_ID, NONE);
+    }
+    
+    public long getCreatedAtMillis(int productId) {
+        return readLong(productId, CREATED_AT, Long.MIN_VALUE);
+    }
+    
+    public String getName(int productId) {
+        return readString(productId, NAME_OFFSET, NAME_LENGTH);
+    }
+    
+    public String getDescription(int productId) {
+        return readString(productId, DESCRIPTION_OFFSET, DESCRIPTION_LENGTH);
+    }
+    
+    /**
+     * Orders two stored products by their collation keys, then by id. Missing products sort last.
+     */
+    public int compareNames(int productIdA, int productIdB) {
+        lock.readLock().lock();
+        try {
+            int slotA = slotOf(productIdA);
+            int slotB = slotOf(productIdB);
+            if (slotA < 0 || slotB < 0) {
+                return slotA < 0 && slotB < 0 ? Integer.compare(productIdA, productIdB) : (slotA < 0 ? 1 : -1);
+            }
+            int offsetA = records.getInt(slotA * RECORD_SIZE + SORT_KEY_OFFSET);
+            int lengthA = records.getInt(slotA * RECORD_SIZE + SORT_KEY_LENGTH);
+            int offsetB = records.getInt(slotB * RECORD_SIZE + SORT_KEY_OFFSET);
+            int lengthB = records.getInt(slotB * RECORD_SIZE + SORT_KEY_LENGTH);
+            int mismatch = arena.slice(offsetA, lengthA).mismatch(arena.slice(offsetB, lengthB));
+            int cmp;
+            if (mismatch < 0) {
+                cmp = 0;
+            } else if (mismatch == lengthA || mismatch == lengthB) {
+                cmp = Integer.compare(lengthA, lengthB);
+            } else {
+                cmp = Integer.compare(Byte.toUnsignedInt(arena.get(offsetA + mismatch)),
+                        Byte.toUnsignedInt(arena.get(offsetB + mismatch)));
+            }
+            return cmp != 0 ? cmp : Integer.compare(productIdA, productIdB);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) records.capacity() + arena.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public static long toCents(BigDecimal price) {
+        if (price == null) {
+            return 0L;
+        }
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+    
+    private int readInt(int productId, int field, int missing) {
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(productId);
+            return slot < 0 ? missing : records.getInt(slot * RECORD_SIZE + field);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private long readLong(int productId, int field, long missing) {
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(productId);
+            return slot < 0 ? missing : records.getLong(slot * RECORD_SIZE + field);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private String readString(int productId, int offsetField, int lengthField) {
+        lock.readLock().lock();
+        try {
+            int slot = slotOf(productId);
+            if (slot < 0) {
+                return null;
+            }
+            int base = slot * RECORD_SIZE;
+            byte[] bytes = new byte[records.getInt(base + lengthField)];
+            arena.get(records.getInt(base + offsetField), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private boolean nameEquals(int slot, byte[] nameBytes) {
+        int base = slot * RECORD_SIZE;
+        if (records.getInt(base + NAME_LENGTH) != nameBytes.length) {
+            return false;
+        }
+        return arena.slice(records.getInt(base + NAME_OFFSET), nameBytes.length).equals(ByteBuffer.wrap(nameBytes));
+    }
+    
+    private int slotOf(int productId) {
+        if (productId <= 0 || productId >= slots.length) {
+            return -1;
+        }
+        return slots[productId] - 1;
+    }
+    
+    private int allocateSlot(int productId) {
+        if (productId >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(slots.length * 2, productId + 1));
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = recordCount++;
+            if ((long) recordCount * RECORD_SIZE > records.capacity()) {
+                records = grow(records, records.capacity(), (long) recordCount * RECORD_SIZE);
+            }
+        }
+        slots[productId] = slot + 1;
+        liveCount++;
+        return slot;
+    }
+    
+    private int append(byte[] bytes) {
+        if ((long) arenaUsed + bytes.length > arena.capacity()) {
+            arena = grow(arena, arenaUsed, (long) arenaUsed + bytes.length);
+        }
+        int offset = arenaUsed;
+        arena.put(offset, bytes);
+        arenaUsed += bytes.length;
+        return offset;
+    }
+    
+    private void compactArena() {
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(INITIAL_ARENA_BYTES, arenaUsed - arenaGarbage));
+        int used = 0;
+        for (int slot = 0; slot < recordCount; slot++) {
+            int base = slot * RECORD_SIZE;
+            if (records.getInt(base + PRODUCT_ID) == NONE) {
+                continue;
+            }
+            for (int field : new int[] { NAME_OFFSET, DESCRIPTION_OFFSET, SORT_KEY_OFFSET }) {
+                int length = records.getInt(base + field + 4);
+                compacted.put(used, arena, records.getInt(base + field), length);
+                records.putInt(base + field, used);
+                used += length;
+            }
+        }
+        arena = compacted;
+        arenaUsed = used;
+        arenaGarbage = 0;
+    }
+    
+    private static Collator createCollator() {
+        Collator collator = Collator.getInstance(new Locale("vi", "VN"));
+        collator.setStrength(Collator.SECONDARY);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return collator;
+    }
+    
+    private static ByteBuffer grow(ByteBuffer buffer, int used, long required) {
+        long capacity = Math.max((long) buffer.capacity() * 2, required);
+        if (capacity > Integer.MAX_VALUE) {
+            capacity = Integer.MAX_VALUE;
+            if (required > capacity) {
+                throw new IllegalStateException("Product store exceeds 2 GB buffer limit");
+            }
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        grown.put(0, buffer, 0, used);
+        return grown;
+    }
+}
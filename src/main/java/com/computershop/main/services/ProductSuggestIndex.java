@@ -0,0 +1,370 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Product;
+import com.computershop.main.repositories.OrderDetailRepository;
+import com.computershop.main.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie over product names for search-box completions. Every word start of a name is a
+ * key, so "deathadder" finds "Razer DeathAdder V3". Each node keeps its best products by units
+ * sold, so a lookup is one walk down the trie with no scoring at query time.
+ */
+@Component
+public class ProductSuggestIndex {
+    
+    public static final int MAX_SUGGESTIONS = 8;
+    private static final int MAX_KEY_LENGTH = 16;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private OrderDetailRepository orderDetailRepository;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final Map<Integer, Long> unitsSold = new HashMap<>();
+    private final Comparator<Integer> byWeight = Comparator
+            .comparingLong((Integer id) -> unitsSold.getOrDefault(id, 0L)).reversed()
+            .thenComparing(id -> names.getOrDefault(id, ""), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Comparator.naturalOrder());
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> products = productRepository.findSearchableFields();
+        List<Object[]> sales = orderDetailRepository.sumQuantityByProduct();
+        lock.writeLock().lock();
+        try {
+            root.clear();
+            names.clear();
+            unitsSold.clear();
+            for (Object[] row : sales) {
+                unitsSold.put((Integer) row[0], ((Number) row[1]).longValue());
+            }
+            for (Object[] row : products) {
+                Integer productId = (Integer) row[0];
+                String name = (String) row[1];
+                if (name == null || name.isBlank()) {
+                    continue;
+                }
+                names.put(productId, name);
+                for (String key : keys(name)) {
+                    root.insert(key, 0, productId);
+                }
+            }
+            root.recomputeAll(this);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        Integer productId = product.getProductId();
+        String name = product.getProductName();
+        lock.writeLock().lock();
+        try {
+            String previous = names.get(productId);
+            if (Objects.equals(previous, name)) {
+                return;
+            }
+            if (previous != null) {
+                for (String key : keys(previous)) {
+                    root.remove(key, 0, productId, this);
+                }
+                names.remove(productId);
+            }
+            if (name != null && !name.isBlank()) {
+                names.put(productId, name);
+                for (String key : keys(name)) {
+                    root.insert(key, 0, productId);
+                    root.recomputePath(key, 0, this);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            String previous = names.remove(productId);
+            unitsSold.remove(productId);
+            if (previous != null) {
+                for (String key : keys(previous)) {
+                    root.remove(key, 0, productId, this);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Adds sold units to a product's weight once the surrounding transaction commits.
+     */
+    public void recordSale(Integer productId, int quantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applySale(productId, quantity);
+                }
+            });
+        } else {
+            applySale(productId, quantity);
+        }
+    }
+    
+    public List<Suggestion> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String key = prefix.length() > MAX_KEY_LENGTH ? prefix.substring(0, MAX_KEY_LENGTH) : prefix;
+        
+        lock.readLock().lock();
+        try {
+            Node node = root.find(key, 0);
+            if (node == null) {
+                return List.of();
+            }
+            if (prefix.length() > MAX_KEY_LENGTH) {
+                return suggestLong(node, prefix, limit);
+            }
+            List<Suggestion> result = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int productId : node.top) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(new Suggestion(productId, names.get(productId)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Keys are cut at MAX_KEY_LENGTH, so the node's top list may be filled by names that share
+     * the key but not the rest of the query. Every product under the node is checked against the
+     * full query instead, then ranked; such long keys are shared by few names.
+     */
+    private List<Suggestion> suggestLong(Node node, String prefix, int limit) {
+        Set<Integer> candidates = new LinkedHashSet<>();
+        node.collect(candidates);
+        return candidates.stream()
+                .filter(productId -> startsWordWith(normalize(names.get(productId)), prefix))
+                .sorted(byWeight)
+                .limit(limit)
+                .map(productId -> new Suggestion(productId, names.get(productId)))
+                .toList();
+    }
+    
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return ProductSearchIndex.fold(text).trim().replaceAll("\\s+", " ");
+    }
+    
+    private static boolean startsWordWith(String normalizedName, String prefix) {
+        return normalizedName.startsWith(prefix) || normalizedName.contains(" " + prefix);
+    }
+    
+    private static Set<String> keys(String name) {
+        String normalized = normalize(name);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                keys.add(normalized.substring(i, Math.min(normalized.length(), i + MAX_KEY_LENGTH)));
+            }
+        }
+        return keys;
+    }
+    
+    private void applySale(Integer productId, int quantity) {
+        lock.writeLock().lock();
+        try {
+            String name = names.get(productId);
+            if (name == null) {
+                return;
+            }
+            unitsSold.merge(productId, (long) quantity, Long::sum);
+            for (String key : keys(name)) {
+                root.recomputePath(key, 0, this);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static final class Node {
+        private static final int[] EMPTY = new int[0];
+        
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private int[] terminals = EMPTY;
+        private int[] top = EMPTY;
+        
+        void clear() {
+            labels = new char[0];
+            children = new Node[0];
+            terminals = EMPTY;
+            top = EMPTY;
+        }
+        
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+        
+        Node find(String key, int depth) {
+            Node node = this;
+            for (int i = depth; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            return node;
+        }
+        
+        void insert(String key, int depth, int productId) {
+            if (depth == key.length()) {
+                if (Arrays.stream(terminals).noneMatch(id -> id == productId)) {
+                    terminals = Arrays.copyOf(terminals, terminals.length + 1);
+                    terminals[terminals.length - 1] = productId;
+                }
+                return;
+            }
+            char c = key.charAt(depth);
+            int i = Arrays.binarySearch(labels, c);
+            if (i < 0) {
+                i = -i - 1;
+                labels = insertAt(labels, i, c);
+                children = insertAt(children, i, new Node());
+            }
+            children[i].insert(key, depth + 1, productId);
+        }
+        
+        /** Removes the product under key and returns true when this node is left empty. */
+        boolean remove(String key, int depth, int productId, ProductSuggestIndex index) {
+            if (depth == key.length()) {
+                terminals = Arrays.stream(terminals).filter(id -> id != productId).toArray();
+            } else {
+                int i = Arrays.binarySearch(labels, key.charAt(depth));
+                if (i >= 0 && children[i].remove(key, depth + 1, productId, index)) {
+                    labels = removeAt(labels, i);
+                    children = removeAt(children, i);
+                }
+            }
+            recompute(index);
+            return terminals.length == 0 && children.length == 0;
+        }
+        
+        void collect(Set<Integer> productIds) {
+            for (int id : terminals) {
+                productIds.add(id);
+            }
+            for (Node child : children) {
+                child.collect(productIds);
+            }
+        }
+        
+        void recomputePath(String key, int depth, ProductSuggestIndex index) {
+            if (depth < key.length()) {
+                Node next = child(key.charAt(depth));
+                if (next != null) {
+                    next.recomputePath(key, depth + 1, index);
+                }
+            }
+            recompute(index);
+        }
+        
+        void recomputeAll(ProductSuggestIndex index) {
+            for (Node child : children) {
+                child.recomputeAll(index);
+            }
+            recompute(index);
+        }
+        
+        private void recompute(ProductSuggestIndex index) {
+            Set<Integer> candidates = new LinkedHashSet<>();
+            for (int id : terminals) {
+                candidates.add(id);
+            }
+            for (Node child : children) {
+                for (int id : child.top) {
+                    candidates.add(id);
+                }
+            }
+            top = candidates.stream()
+                    .sorted(index.byWeight)
+                    .limit(MAX_SUGGESTIONS)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        
+        private static char[] insertAt(char[] array, int i, char value) {
+            char[] copy = new char[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, i);
+            copy[i] = value;
+            System.arraycopy(array, i, copy, i + 1, array.length - i);
+            return copy;
+        }
+        
+        private static Node[] insertAt(Node[] array, int i, Node value) {
+            Node[] copy = new Node[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, i);
+            copy[i] = value;
+            System.arraycopy(array, i, copy, i + 1, array.length - i);
+            return copy;
+        }
+        
+        private static char[] removeAt(char[] array, int i) {
+            char[] copy = new char[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+            return copy;
+        }
+        
+        private static Node[] removeAt(Node[] array, int i) {
+            Node[] copy = new Node[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+            return copy;
+        }
+    }
+    
+    public static class Suggestion {
+        private final Integer productId;
+        private final String productName;
+        
+        public Suggestion(Integer productId, String productName) {
+            this.productId = productId;
+            this.productName = productName;
+        }
+        
+        public Integer getProductId() { return productId; }
+        public String getProductName() { return productName; }
+    }
+}
@@ -0,0 +1,115 @@
+package com.computershop.main.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts product detail views in memory and writes the deltas as one batched UPDATE every few
+ * seconds. Counters only ever grow; a flush writes the difference from what was last written,
+ * so a failed flush is retried next time and increments racing a flush are never dropped. The
+ * batch runs in its own transaction and the written totals only advance once it has committed,
+ * so a batch that fails part-way is rolled back whole and never counted twice.
+ */
+@Service
+public class ProductViewCounter {
+    
+    private static final Logger log = LoggerFactory.getLogger(ProductViewCounter.class);
+    
+    private static final String INCREMENT_VIEWS_SQL =
+            "UPDATE products SET view_count = COALESCE(view_count, 0) + ? WHERE product_id = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${computershop.view-counter.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+    
+    private final Map<Integer, LongAdder> views = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> flushed = new HashMap<>();
+    private TransactionTemplate writeTransaction;
+    private ScheduledExecutorService scheduler;
+    
+    @PostConstruct
+    public void start() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-view-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.warn("Product view flush failed, deltas kept for the next attempt", e);
+            }
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stops the schedule and writes whatever is still pending, so a graceful shutdown loses no views.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+        flush();
+    }
+    
+    public void record(Integer productId) {
+        if (productId != null) {
+            views.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        }
+    }
+    
+    /**
+     * Views counted in memory that are not yet in products.view_count.
+     */
+    public synchronized long getPendingCount(Integer productId) {
+        LongAdder counter = views.get(productId);
+        return counter != null ? counter.sum() - flushed.getOrDefault(productId, 0L) : 0L;
+    }
+    
+    public synchronized int flush() {
+        List<Object[]> updates = new ArrayList<>();
+        Map<Integer, Long> totals = new HashMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : views.entrySet()) {
+            long total = entry.getValue().sum();
+            long delta = total - flushed.getOrDefault(entry.getKey(), 0L);
+            if (delta > 0) {
+                updates.add(new Object[] { delta, entry.getKey() });
+                totals.put(entry.getKey(), total);
+            }
+        }
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INCREMENT_VIEWS_SQL, updates));
+        flushed.putAll(totals);
+        return updates.size();
+    }
+}
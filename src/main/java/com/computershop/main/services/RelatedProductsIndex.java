@@ -0,0 +1,145 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.Product;
+import com.computershop.main.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps a short list of related product ids per product: the items in the same category whose
+ * price is closest. Only the category of a changed product is recomputed.
+ */
+@Component
+public class RelatedProductsIndex {
+    
+    public static final int RELATED_LIMIT = 4;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Integer, List<Entry>> byCategory = new HashMap<>();
+    private final Map<Integer, int[]> related = new HashMap<>();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = productRepository.findRelatedFields();
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            byCategory.clear();
+            related.clear();
+            for (Object[] row : rows) {
+                Entry entry = new Entry((Integer) row[0], (Integer) row[1], (BigDecimal) row[2]);
+                entries.put(entry.productId, entry);
+                if (entry.categoryId != null) {
+                    byCategory.computeIfAbsent(entry.categoryId, id -> new ArrayList<>()).add(entry);
+                }
+            }
+            byCategory.keySet().forEach(this::recompute);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        Integer categoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+        Entry entry = new Entry(product.getProductId(), categoryId, product.getPrice());
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.put(entry.productId, entry);
+            if (previous != null && previous.categoryId != null) {
+                byCategory.get(previous.categoryId).remove(previous);
+                if (!Objects.equals(previous.categoryId, categoryId)) {
+                    recompute(previous.categoryId);
+                }
+            }
+            related.remove(entry.productId);
+            if (categoryId != null) {
+                byCategory.computeIfAbsent(categoryId, id -> new ArrayList<>()).add(entry);
+                recompute(categoryId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(productId);
+            related.remove(productId);
+            if (previous != null && previous.categoryId != null) {
+                byCategory.get(previous.categoryId).remove(previous);
+                recompute(previous.categoryId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public List<Integer> getRelated(Integer productId) {
+        lock.readLock().lock();
+        try {
+            int[] ids = related.get(productId);
+            if (ids == null) {
+                return List.of();
+            }
+            return Arrays.stream(ids).boxed().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void recompute(Integer categoryId) {
+        List<Entry> members = byCategory.get(categoryId);
+        if (members.isEmpty()) {
+            byCategory.remove(categoryId);
+            return;
+        }
+        members.sort(Comparator.comparing((Entry e) -> e.price).thenComparing(e -> e.productId));
+        
+        for (int i = 0; i < members.size(); i++) {
+            Entry self = members.get(i);
+            int count = Math.min(RELATED_LIMIT, members.size() - 1);
+            int[] ids = new int[count];
+            int left = i - 1;
+            int right = i + 1;
+            for (int n = 0; n < count; n++) {
+                boolean takeLeft = right >= members.size()
+                        || (left >= 0 && self.price.subtract(members.get(left).price)
+                                .compareTo(members.get(right).price.subtract(self.price)) <= 0);
+                ids[n] = takeLeft ? members.get(left--).productId : members.get(right++).productId;
+            }
+            related.put(self.productId, ids);
+        }
+    }
+    
+    private static final class Entry {
+        private final int productId;
+        private final Integer categoryId;
+        private final BigDecimal price;
+        
+        private Entry(int productId, Integer categoryId, BigDecimal price) {
+            this.productId = productId;
+            this.categoryId = categoryId;
+            this.price = price != null ? price : BigDecimal.ZERO;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.computershop.main.services;
+
+import com.computershop.main.entities.SalesSummary;
+import com.computershop.main.repositories.OrderRepository;
+import com.computershop.main.repositories.SalesSummaryRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+public class SalesSummaryService {
+    
+    public static final String DEFAULT_STATUS = "pending";
+    
+    private static final String LOCK_TABLE_SQL = "SELECT COUNT(*) FROM sales_summary WITH (UPDLOCK, TABLOCKX)";
+    
+    private static final String INSERT_EMPTY_ROW_SQL =
+            "INSERT INTO sales_summary (status, order_count, total_revenue, updated_at) VALUES (?, 0, 0, ?)";
+    
+    @Autowired
+    private SalesSummaryRepository salesSummaryRepository;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate insertTransaction;
+    
+    @PostConstruct
+    public void start() {
+        insertTransaction = new TransactionTemplate(transactionManager);
+        insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    // transactional itself: the call to rebuild() below does not go through the proxy
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (salesSummaryRepository.count() == 0) {
+            rebuild();
+        }
+    }
+    
+    @Transactional
+    public void recordOrderPlaced(String status, BigDecimal amount) {
+        applyDelta(status, 1, amount);
+    }
+    
+    @Transactional
+    public void recordOrderRemoved(String status, BigDecimal amount) {
+        applyDelta(status, -1, amount.negate());
+    }
+    
+    @Transactional
+    public void recordRevenueChange(String status, BigDecimal delta) {
+        applyDelta(status, 0, delta);
+    }
+    
+    @Transactional
+    public void recordStatusChange(String oldStatus, String newStatus, BigDecimal amount) {
+        if (normalize(oldStatus).equals(normalize(newStatus))) {
+            return;
+        }
+        applyDelta(oldStatus, -1, amount.negate());
+        applyDelta(newStatus, 1, amount);
+    }
+    
+    /**
+     * Recomputes the table from the orders. The table is locked exclusively before the orders are
+     * read, so a concurrent order's delta waits for the rebuild and is applied on top of it instead
+     * of landing on a row the rebuild is about to replace. A writer that already wrote its order
+     * but has not applied its delta yet can deadlock with the rebuild; the rebuild is the victim
+     * SQL Server picks, and can simply be run again.
+     */
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.execute("SET DEADLOCK_PRIORITY LOW");
+        try {
+            jdbcTemplate.queryForObject(LOCK_TABLE_SQL, Long.class);
+            replaceAll();
+        } finally {
+            jdbcTemplate.execute("SET DEADLOCK_PRIORITY NORMAL");
+        }
+    }
+    
+    private void replaceAll() {
+        Map<String, SalesSummary> rows = new HashMap<>();
+        for (Object[] row : orderRepository.summarizeByStatus()) {
+            String status = normalize((String) row[0]);
+            long orders = ((Number) row[1]).longValue();
+            BigDecimal revenue = row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO;
+            
+            SalesSummary summary = rows.computeIfAbsent(status, s -> new SalesSummary(s, 0L, BigDecimal.ZERO));
+            summary.setOrderCount(summary.getOrderCount() + orders);
+            summary.setTotalRevenue(summary.getTotalRevenue().add(revenue));
+        }
+        
+        salesSummaryRepository.deleteAllInBatch();
+        salesSummaryRepository.saveAll(rows.values());
+    }
+    
+    public SalesTotals getTotals() {
+        List<SalesSummary> rows = salesSummaryRepository.findAll();
+        
+        long orderCount = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        Map<String, Long> statusCounts = new HashMap<>();
+        for (SalesSummary row : rows) {
+            orderCount += row.getOrderCount();
+            revenue = revenue.add(row.getTotalRevenue());
+            statusCounts.put(row.getStatus(), row.getOrderCount());
+        }
+        return new SalesTotals(orderCount, revenue, statusCounts);
+    }
+    
+    private void applyDelta(String status, long orders, BigDecimal revenue) {
+        String key = normalize(status);
+        BigDecimal amount = revenue != null ? revenue : BigDecimal.ZERO;
+        
+        if (salesSummaryRepository.applyDelta(key, orders, amount, LocalDateTime.now()) == 0) {
+            createEmptyRow(key);
+            salesSummaryRepository.applyDelta(key, orders, amount, LocalDateTime.now());
+        }
+    }
+    
+    /**
+     * Two orders can both be the first of their status and both miss the UPDATE. The row is
+     * therefore inserted empty in its own transaction, where losing the race to the other insert
+     * is harmless and cannot poison the order's transaction, and both deltas then go through the
+     * UPDATE.
+     */
+    private void createEmptyRow(String status) {
+        try {
+            insertTransaction.executeWithoutResult(tx -> jdbcTemplate.update(INSERT_EMPTY_ROW_SQL, status, LocalDateTime.now()));
+        } catch (DataIntegrityViolationException e) {
+            // inserted by a concurrent order in the meantime
+        }
+    }
+    
+    private static String normalize(String status) {
+        return status == null || status.isBlank() ? DEFAULT_STATUS : status.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    public static class SalesTotals {
+        private final long orderCount;
+        private final BigDecimal totalRevenue;
+        private final Map<String, Long> statusCounts;
+        
+        public SalesTotals(long orderCount, BigDecimal totalRevenue, Map<String, Long> statusCounts) {
+            this.orderCount = orderCount;
+            this.totalRevenue = totalRevenue;
+            this.statusCounts = Map.copyOf(statusCounts);
+        }
+        
+        public long getOrderCount() { return orderCount; }
+        public BigDecimal getTotalRevenue() { return totalRevenue; }
+        public Map<String, Long> getStatusCounts() { return statusCounts; }
+        
+        public long getStatusCount(String status) {
+            return statusCounts.getOrDefault(normalize(status), 0L);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+-- Applied by hand to databases created before this script (the project has no migration
+-- runner; see README). Every statement is guarded, so rerunning is a no-op.
+
+-- products: category listing, stock filters, price range and newest-first queries
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_products_category_id' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX IX_products_category_id ON products (category_id)
+        INCLUDE (product_name, price, stock_quantity, image_id);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_products_stock_quantity' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX IX_products_stock_quantity ON products (stock_quantity)
+        INCLUDE (product_name, price, category_id, image_id, created_at);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_products_price' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX IX_products_price ON products (price)
+        INCLUDE (product_name, stock_quantity, category_id, image_id);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_products_created_at' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX IX_products_created_at ON products (created_at DESC)
+        INCLUDE (stock_quantity);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_products_image_id' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX IX_products_image_id ON products (image_id);
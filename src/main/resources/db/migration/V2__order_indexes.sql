@@ -0,0 +1,22 @@
+-- Applied by hand to databases created before this script (the project has no migration
+-- runner; see README). Every statement is guarded, so rerunning is a no-op.
+
+-- orders: per-user history (newest first) and date range reports
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_orders_user_id_order_date' AND object_id = OBJECT_ID('orders'))
+    CREATE INDEX IX_orders_user_id_order_date ON orders (user_id, order_date DESC)
+        INCLUDE (status);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_orders_order_date' AND object_id = OBJECT_ID('orders'))
+    CREATE INDEX IX_orders_order_date ON orders (order_date DESC)
+        INCLUDE (user_id, status);
+
+-- order_details: lines of an order and sales per product
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_order_details_order_id' AND object_id = OBJECT_ID('order_details'))
+    CREATE INDEX IX_order_details_order_id ON order_details (order_id)
+        INCLUDE (product_id, quantity, price);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_order_details_product_id' AND object_id = OBJECT_ID('order_details'))
+    CREATE INDEX IX_order_details_product_id ON order_details (product_id)
+        INCLUDE (order_id, quantity, price);
@@ -0,0 +1,9 @@
+-- Applied by hand to databases created before this script (the project has no migration
+-- runner; see README). Every statement is guarded, so rerunning is a no-op.
+
+-- cart_items: cart_id lookups are served by UQ_cart_product (cart_id, product_id);
+-- product_id needs its own index so deleting a product does not scan every cart
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_cart_items_product_id' AND object_id = OBJECT_ID('cart_items'))
+    CREATE INDEX IX_cart_items_product_id ON cart_items (product_id)
+        INCLUDE (cart_id, quantity);
@@ -0,0 +1,13 @@
+-- Applied by hand to databases created before this script (the project has no migration
+-- runner; see README). Every statement is guarded, so rerunning is a no-op.
+
+-- products.view_count: accumulated by ProductViewCounter and written in batches,
+-- indexed so the most-viewed report reads the top rows instead of sorting the table
+
+IF COL_LENGTH('products', 'view_count') IS NULL
+    ALTER TABLE products ADD view_count BIGINT NOT NULL DEFAULT 0;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_products_view_count' AND object_id = OBJECT_ID('products'))
+    CREATE INDEX IX_products_view_count ON products (view_count DESC)
+        INCLUDE (product_name);
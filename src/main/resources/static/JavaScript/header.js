@@ -12,4 +12,31 @@ document.addEventListener('click', function(event) {
     if (userMenu && !userMenu.contains(event.target)) {
         dropdown?.classList.remove('show');
     }
+});
+
+
+const searchInput = document.getElementById('q');
+const suggestionList = document.getElementById('search-suggestions');
+let suggestTimer = null;
+
+searchInput?.addEventListener('input', function() {
+    clearTimeout(suggestTimer);
+    const query = searchInput.value.trim();
+    if (query.length === 0) {
+        suggestionList.innerHTML = '';
+        return;
+    }
+    suggestTimer = setTimeout(function() {
+        fetch('/products/suggest?q=' + encodeURIComponent(query))
+            .then(response => response.ok ? response.json() : [])
+            .then(items => {
+                suggestionList.innerHTML = '';
+                items.forEach(item => {
+                    const option = document.createElement('option');
+                    option.value = item.name;
+                    suggestionList.appendChild(option);
+                });
+            })
+            .catch(() => {});
+    }, 120);
 });
\ No newline at end of file
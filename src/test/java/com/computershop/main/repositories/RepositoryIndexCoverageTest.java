@@ -0,0 +1,166 @@
+package com.computershop.main.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs each filtered repository method against an H2 schema generated from the entities, with
+ * the indexes of db/migration applied on top, and checks that the SQL Hibernate actually issued
+ * is answered from an index rather than a table scan. A renamed column or a changed finder shows
+ * up here instead of silently losing its index. A new finder on an unindexed column should come
+ * with a migration and a row here.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.computershop.main.repositories.RepositoryIndexCoverageTest$RecordingInspector"
+})
+class RepositoryIndexCoverageTest {
+    
+    private static final Pattern CREATE_INDEX =
+            Pattern.compile("CREATE INDEX (\\w+) ON (\\w+) \\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private OrderDetailRepository orderDetailRepository;
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeEach
+    void applyMigrationIndexes() throws Exception {
+        for (Resource migration : new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*.sql")) {
+            // only the index definitions: the guards are T-SQL and the columns come from the entities;
+            // H2 has no covering-column clause, and the key columns are what decide index use
+            Matcher index = CREATE_INDEX.matcher(migration.getContentAsString(StandardCharsets.UTF_8));
+            while (index.find()) {
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + index.group(1) + " ON " + index.group(2)
+                        + " (" + index.group(3) + ")");
+            }
+        }
+    }
+    
+    static Stream<Arguments> repositoryQueries() {
+        LocalDateTime now = LocalDateTime.now();
+        return Stream.of(
+                call("ProductRepository.findByCategoryCategoryId", t -> t.productRepository.findByCategoryCategoryId(1)),
+                call("ProductRepository.findByPriceBetween", t -> t.productRepository.findByPriceBetween(BigDecimal.ONE, BigDecimal.TEN)),
+                call("ProductRepository.findByStockQuantityGreaterThan", t -> t.productRepository.findByStockQuantityGreaterThan(5)),
+                call("ProductRepository.findOutOfStockProducts", t -> t.productRepository.findOutOfStockProducts()),
+                call("ProductRepository.findLowStockProducts", t -> t.productRepository.findLowStockProducts(PageRequest.of(0, 10))),
+                call("ProductRepository.findMostViewed", t -> t.productRepository.findMostViewed(PageRequest.of(0, 10))),
+                call("OrderRepository.findByUserUserIdOrderByOrderDateDesc", t -> t.orderRepository.findByUserUserIdOrderByOrderDateDesc(1)),
+                call("OrderRepository.countByUserUserId", t -> t.orderRepository.countByUserUserId(1)),
+                call("OrderRepository.findByOrderDateBetween", t -> t.orderRepository.findByOrderDateBetween(now.minusDays(30), now)),
+                call("OrderRepository.findOrdersFromLastDays", t -> t.orderRepository.findOrdersFromLastDays(now.minusDays(7))),
+                call("OrderDetailRepository.findByOrderOrderId", t -> t.orderDetailRepository.findByOrderOrderId(1)),
+                call("OrderDetailRepository.calculateOrderTotal", t -> t.orderDetailRepository.calculateOrderTotal(1)),
+                call("OrderDetailRepository.findByProductProductId", t -> t.orderDetailRepository.findByProductProductId(1)),
+                call("OrderDetailRepository.calculateTotalQuantitySoldByProduct", t -> t.orderDetailRepository.calculateTotalQuantitySoldByProduct(1)),
+                call("CartItemRepository.findByCartCartId", t -> t.cartItemRepository.findByCartCartId(1)),
+                call("CartItemRepository.findByCartIdAndProductId", t -> t.cartItemRepository.findByCartIdAndProductId(1, 1)));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void queryUsesAnIndex(String repositoryMethod, RepositoryCall call) throws Exception {
+        RecordingInspector.STATEMENTS.clear();
+        call.run(this);
+        String sql = RecordingInspector.STATEMENTS.get(0);
+        assertUsesIndex(repositoryMethod, sql);
+    }
+    
+    /**
+     * Not a finder: SQL Server checks FK_cart_items_products this way on every product delete.
+     */
+    @Test
+    void cartItemsProductForeignKeyIsIndexed() throws Exception {
+        assertUsesIndex("cart_items.product_id", "SELECT cart_item_id FROM cart_items WHERE product_id = ?");
+    }
+    
+    private void assertUsesIndex(String label, String sql) throws Exception {
+        String plan = jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                bindSampleValues(statement);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+        assertFalse(plan.contains("tableScan"), label + " scans the table:\n" + plan);
+    }
+    
+    private static void bindSampleValues(PreparedStatement statement) throws Exception {
+        ParameterMetaData parameters = statement.getParameterMetaData();
+        for (int i = 1; i <= parameters.getParameterCount(); i++) {
+            switch (parameters.getParameterType(i)) {
+                case Types.DECIMAL, Types.NUMERIC -> statement.setBigDecimal(i, BigDecimal.ONE);
+                case Types.DATE, Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE ->
+                        statement.setTimestamp(i, Timestamp.valueOf(LocalDateTime.now()));
+                case Types.CHAR, Types.VARCHAR, Types.NVARCHAR -> statement.setString(i, "x");
+                default -> statement.setInt(i, 1);
+            }
+        }
+    }
+    
+    private static Arguments call(String repositoryMethod, RepositoryCall call) {
+        return Arguments.of(repositoryMethod, call);
+    }
+    
+    @FunctionalInterface
+    interface RepositoryCall {
+        void run(RepositoryIndexCoverageTest test);
+    }
+    
+    /**
+     * Records every statement Hibernate prepares, so the test explains exactly what the
+     * repository sent.
+     */
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.computershop.main.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NameOrderIndexTest {
+    
+    private ProductStore store;
+    private NameOrderIndex index;
+    private BitSet everything;
+    
+    @BeforeEach
+    void setUp() {
+        store = new ProductStore();
+        index = new NameOrderIndex();
+        ReflectionTestUtils.setField(index, "productStore", store);
+        everything = new BitSet();
+        everything.set(1, 100);
+    }
+    
+    @Test
+    void vietnameseDSortsBetweenDAndE() {
+        put(1, "Eee PC");
+        put(2, "Đồng hồ thông minh");
+        put(3, "Dell XPS");
+        put(4, "Zenbook");
+        load(1, 2, 3, 4);
+        
+        assertEquals(List.of(3, 2, 1, 4), index.page(everything, 0, 10));
+    }
+    
+    @Test
+    void lowerCaseDSortsWithTheUpperCase() {
+        put(1, "đèn bàn");
+        put(2, "Dây cáp");
+        put(3, "ép lụa");
+        load(1, 2, 3);
+        
+        assertEquals(List.of(2, 1, 3), index.page(everything, 0, 10));
+    }
+    
+    @Test
+    void vowelsWithMarksFollowTheirBaseLetter() {
+        put(1, "Bàn phím");
+        put(2, "Ấm đun");
+        put(3, "Ắc quy");
+        put(4, "Anker");
+        load(1, 2, 3, 4);
+        
+        // a < ă < â < b
+        assertEquals(List.of(4, 3, 2, 1), index.page(everything, 0, 10));
+    }
+    
+    @Test
+    void toneMarksSortAfterTheUnmarkedName() {
+        put(1, "Bán phím");
+        put(2, "Bàn phím");
+        put(3, "Ban phím");
+        load(1, 2, 3);
+        
+        // the keys first differ in a tone weight byte above 0x7f, so this needs the unsigned compare
+        assertEquals(List.of(3, 2, 1), index.page(everything, 0, 10));
+    }
+    
+    @Test
+    void equalNamesAreOrderedById() {
+        put(9, "Chuột");
+        put(4, "Chuột");
+        put(6, "Chuột");
+        load(9, 4, 6);
+        
+        assertEquals(List.of(4, 6, 9), index.page(everything, 0, 10));
+    }
+    
+    @Test
+    void putMovesARenamedProduct() {
+        put(1, "Asus");
+        put(2, "Dell");
+        put(3, "Lenovo");
+        load(1, 2, 3);
+        
+        put(1, "MSI");
+        index.put(1);
+        assertEquals(List.of(2, 3, 1), index.page(everything, 0, 10));
+        
+        put(4, "Đĩa cứng");
+        index.put(4);
+        assertEquals(List.of(2, 4, 3, 1), index.page(everything, 0, 10));
+    }
+    
+    @Test
+    void removeDropsTheProduct() {
+        put(1, "Asus");
+        put(2, "Dell");
+        load(1, 2);
+        
+        index.remove(1);
+        assertEquals(List.of(2), index.page(everything, 0, 10));
+        
+        index.remove(1);
+        assertEquals(List.of(2), index.page(everything, 0, 10));
+    }
+    
+    @Test
+    void pageAppliesFilterOffsetAndLimit() {
+        put(1, "A");
+        put(2, "B");
+        put(3, "C");
+        put(4, "D");
+        load(1, 2, 3, 4);
+        
+        BitSet filter = new BitSet();
+        filter.set(1);
+        filter.set(3);
+        filter.set(4);
+        assertEquals(List.of(3, 4), index.page(filter, 1, 5));
+        assertEquals(List.of(1), index.page(filter, 0, 1));
+    }
+    
+    private void put(int productId, String name) {
+        store.put(productId, 0L, 0, ProductStore.NONE, ProductStore.NONE, 0L, name, null);
+    }
+    
+    private void load(int... ids) {
+        index.load(ids, ids.length);
+    }
+}
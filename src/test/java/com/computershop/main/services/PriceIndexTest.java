@@ -0,0 +1,119 @@
+package com.computershop.main.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceIndexTest {
+    
+    private PriceIndex index;
+    private BitSet everything;
+    
+    @BeforeEach
+    void setUp() {
+        index = new PriceIndex();
+        // ids 1, 3 and 5 share a price, and are loaded out of order
+        index.load(new int[] { 5, 2, 3, 4, 1 }, new long[] { 500, 300, 500, 100, 500 }, 5);
+        everything = new BitSet();
+        everything.set(1, 10);
+    }
+    
+    @Test
+    void ascendingPageOrdersByPriceThenId() {
+        assertEquals(List.of(4, 2, 1, 3, 5), index.page(everything, false, 0, 10));
+    }
+    
+    @Test
+    void descendingPageKeepsTiesInAscendingIdOrder() {
+        assertEquals(List.of(1, 3, 5, 2, 4), index.page(everything, true, 0, 10));
+    }
+    
+    @Test
+    void descendingPagesSplitInsideATie() {
+        assertEquals(List.of(1, 3), index.page(everything, true, 0, 2));
+        assertEquals(List.of(5, 2), index.page(everything, true, 2, 2));
+        assertEquals(List.of(4), index.page(everything, true, 4, 2));
+    }
+    
+    @Test
+    void pageSkipsIdsOutsideTheFilter() {
+        BitSet filter = new BitSet();
+        filter.set(3);
+        filter.set(4);
+        assertEquals(List.of(3, 4), index.page(filter, true, 0, 10));
+        assertEquals(List.of(4), index.page(filter, true, 1, 10));
+    }
+    
+    @Test
+    void rangeIncludesBothBounds() {
+        assertEquals(bits(1, 2, 3, 5), index.range(300, 500));
+        assertEquals(bits(4), index.range(100, 100));
+        assertEquals(bits(1, 3, 5), index.range(500, 500));
+    }
+    
+    @Test
+    void rangeExcludesPricesJustOutsideTheBounds() {
+        assertTrue(index.range(301, 499).isEmpty());
+        assertTrue(index.range(101, 299).isEmpty());
+        assertTrue(index.range(501, Long.MAX_VALUE).isEmpty());
+    }
+    
+    @Test
+    void openRangeAndInvertedRange() {
+        assertEquals(bits(1, 2, 3, 4, 5), index.range(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertTrue(index.range(500, 100).isEmpty());
+    }
+    
+    @Test
+    void putRemoveAndPutAgainKeepsOneEntryPerId() {
+        index.put(7, 200);
+        assertEquals(List.of(4, 7, 2, 1, 3, 5), index.page(everything, false, 0, 10));
+        
+        index.put(7, 600);
+        assertEquals(List.of(7, 1, 3, 5, 2, 4), index.page(everything, true, 0, 10));
+        assertEquals(6, index.size());
+        
+        index.remove(7);
+        assertEquals(List.of(4, 2, 1, 3, 5), index.page(everything, false, 0, 10));
+        assertTrue(index.range(600, 600).isEmpty());
+        assertEquals(5, index.size());
+        
+        index.put(7, 50);
+        assertEquals(List.of(7, 4, 2, 1, 3, 5), index.page(everything, false, 0, 10));
+        assertEquals(bits(7), index.range(50, 50));
+        assertEquals(6, index.size());
+    }
+    
+    @Test
+    void putWithUnchangedPriceDoesNotDuplicate() {
+        index.put(3, 500);
+        assertEquals(5, index.size());
+        assertEquals(List.of(1, 3, 5), index.page(bits(1, 3, 5), false, 0, 10));
+    }
+    
+    @Test
+    void putJoinsAnExistingTieInIdOrder() {
+        index.put(2, 500);
+        assertEquals(List.of(1, 2, 3, 5, 4), index.page(everything, true, 0, 10));
+    }
+    
+    @Test
+    void removingAnUnknownIdIsIgnored() {
+        index.remove(42);
+        index.remove(0);
+        assertEquals(5, index.size());
+    }
+    
+    private static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+}
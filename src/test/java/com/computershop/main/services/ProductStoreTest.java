@@ -0,0 +1,158 @@
+package com.computershop.main.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductStoreTest {
+    
+    private ProductStore store;
+    
+    @BeforeEach
+    void setUp() {
+        store = new ProductStore();
+    }
+    
+    @Test
+    void putStoresEveryField() {
+        assertTrue(store.put(7, 1_299_900L, 12, 3, 4, 1_700_000_000_000L, "Laptop Đồ họa", "Mô tả"));
+        
+        assertTrue(store.contains(7));
+        assertEquals(1_299_900L, store.getPriceCents(7));
+        assertEquals(12, store.getStock(7));
+        assertEquals(3, store.getCategoryId(7));
+        assertEquals(4, store.getImageId(7));
+        assertEquals(1_700_000_000_000L, store.getCreatedAtMillis(7));
+        assertEquals("Laptop Đồ họa", store.getName(7));
+        assertEquals("Mô tả", store.getDescription(7));
+        assertEquals(1, store.size());
+    }
+    
+    @Test
+    void putReportsOnlyNewOrRenamedProducts() {
+        assertTrue(store.put(1, 100L, 1, 0, 0, 0L, "Chuột", "a"));
+        assertFalse(store.put(1, 200L, 2, 0, 0, 0L, "Chuột", "b"));
+        assertTrue(store.put(1, 200L, 2, 0, 0, 0L, "Chuột không dây", "b"));
+        
+        assertEquals("Chuột không dây", store.getName(1));
+        assertEquals("b", store.getDescription(1));
+        assertEquals(200L, store.getPriceCents(1));
+        assertEquals(1, store.size());
+    }
+    
+    @Test
+    void removeForgetsTheProductAndReusesItsSlot() {
+        store.put(1, 100L, 1, 0, 0, 0L, "Một", null);
+        store.put(2, 200L, 2, 0, 0, 0L, "Hai", null);
+        store.remove(1);
+        
+        assertFalse(store.contains(1));
+        assertNull(store.getName(1));
+        assertEquals(0, store.getStock(1));
+        assertEquals(-1, store.adjustStock(1, 5));
+        assertEquals(1, store.size());
+        
+        store.put(3, 300L, 3, 0, 0, 0L, "Ba", null);
+        store.put(1, 400L, 4, 0, 0, 0L, "Một lần nữa", null);
+        assertEquals("Hai", store.getName(2));
+        assertEquals("Ba", store.getName(3));
+        assertEquals("Một lần nữa", store.getName(1));
+        assertEquals(400L, store.getPriceCents(1));
+        assertEquals(3, store.size());
+    }
+    
+    @Test
+    void adjustStockNeverGoesBelowZero() {
+        store.put(1, 100L, 5, 0, 0, 0L, "Bàn phím", null);
+        
+        assertEquals(2, store.adjustStock(1, -3));
+        assertEquals(0, store.adjustStock(1, -10));
+        assertEquals(4, store.adjustStock(1, 4));
+        assertEquals(4, store.getStock(1));
+    }
+    
+    @Test
+    void arenaIsCompactedAfterRenamesAndRemovals() {
+        int products = 200;
+        for (int id = 1; id <= products; id++) {
+            store.put(id, id, id, 0, 0, 0L, name(id, 0), description(id, 0));
+        }
+        long initialBytes = store.getOffHeapBytes();
+        
+        for (int round = 1; round <= 20; round++) {
+            for (int id = 1; id <= products; id++) {
+                store.put(id, id, id, 0, 0, 0L, name(id, round), description(id, round));
+            }
+        }
+        for (int id = 2; id <= products; id += 2) {
+            store.remove(id);
+        }
+        for (int id = 1; id <= products; id += 2) {
+            store.put(id, id, id, 0, 0, 0L, name(id, 21), description(id, 21));
+        }
+        
+        // 21 uncompacted generations of every name and description would need far more than this
+        assertTrue(store.getOffHeapBytes() <= 4 * initialBytes,
+                "off-heap bytes grew from " + initialBytes + " to " + store.getOffHeapBytes());
+        assertEquals(products / 2, store.size());
+        for (int id = 1; id <= products; id++) {
+            if (id % 2 == 1) {
+                assertEquals(name(id, 21), store.getName(id));
+                assertEquals(description(id, 21), store.getDescription(id));
+                assertEquals(id, store.getStock(id));
+            } else {
+                assertFalse(store.contains(id));
+            }
+        }
+        // the sort keys were moved with the names
+        assertTrue(store.compareNames(1, 3) < 0);
+        assertTrue(store.compareNames(199, 3) > 0);
+    }
+    
+    @Test
+    void compareNamesUsesVietnameseOrderThenId() {
+        store.put(1, 0L, 0, 0, 0, 0L, "Đèn", null);
+        store.put(2, 0L, 0, 0, 0, 0L, "Dây", null);
+        store.put(3, 0L, 0, 0, 0, 0L, "Ép", null);
+        store.put(4, 0L, 0, 0, 0, 0L, "Dây", null);
+        
+        assertTrue(store.compareNames(2, 1) < 0);
+        assertTrue(store.compareNames(1, 3) < 0);
+        assertTrue(store.compareNames(2, 4) < 0);
+        assertTrue(store.compareNames(1, 99) < 0);
+    }
+    
+    @Test
+    void replaceWithTakesOverTheOtherStore() {
+        store.put(1, 100L, 1, 0, 0, 0L, "Cũ", null);
+        ProductStore staged = new ProductStore();
+        staged.put(2, 200L, 2, 0, 0, 0L, "Mới", null);
+        
+        store.replaceWith(staged);
+        
+        assertFalse(store.contains(1));
+        assertEquals("Mới", store.getName(2));
+        assertEquals(1, store.size());
+    }
+    
+    @Test
+    void toCentsRoundsHalfUp() {
+        assertEquals(1_999L, ProductStore.toCents(new BigDecimal("19.99")));
+        assertEquals(1_000L, ProductStore.toCents(new BigDecimal("9.995")));
+        assertEquals(0L, ProductStore.toCents(null));
+    }
+    
+    private static String name(int id, int round) {
+        return String.format("Sản phẩm %03d phiên bản %02d ", id, round).repeat(4);
+    }
+    
+    private static String description(int id, int round) {
+        return String.format("Mô tả chi tiết sản phẩm %03d, bản %02d. ", id, round).repeat(6);
+    }
+}